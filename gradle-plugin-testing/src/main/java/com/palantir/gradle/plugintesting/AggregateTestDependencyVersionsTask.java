@@ -0,0 +1,170 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.MapProperty;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Combines the dependency versions of every project of the build into one file in the root project, holding the
+ * version most projects use for each dependency, and an overlay per project with just the versions where that project
+ * differs.  Tests of every project read the shared file and their own overlay.
+ */
+@CacheableTask
+public abstract class AggregateTestDependencyVersionsTask extends DefaultTask {
+    static final String NAME = "writeAggregatedTestDependencyVersions";
+    static final String VERSIONS_FILE_NAME = "dependency-versions.properties";
+
+    public AggregateTestDependencyVersionsTask() {
+        getOutputDirectory()
+                .convention(getProject().getLayout().getBuildDirectory().dir("plugin-testing/aggregated"));
+    }
+
+    /**
+     * Dependency versions file of each project, by project path.
+     */
+    @Internal
+    public abstract MapProperty<String, RegularFile> getProjectVersionsFiles();
+
+    @Input
+    public final Provider<Set<String>> getProjectPaths() {
+        return getProjectVersionsFiles().map(Map::keySet);
+    }
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public final Provider<Collection<RegularFile>> getVersionsFiles() {
+        return getProjectVersionsFiles().map(Map::values);
+    }
+
+    @OutputDirectory
+    public abstract DirectoryProperty getOutputDirectory();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    /**
+     * Location of the overlay of the given project within the output directory.
+     */
+    static String overlayPath(String projectPath) {
+        String relative = projectPath.equals(":") ? "" : projectPath.substring(1).replace(':', '/') + "/";
+        return "overlays/" + relative + VERSIONS_FILE_NAME;
+    }
+
+    @TaskAction
+    public final void doAction() {
+        Path outputDir = getOutputDirectory().get().getAsFile().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(outputDir.resolve("overlays").toFile()));
+
+        Map<String, Map<String, Entry>> projects = new TreeMap<>();
+        getProjectVersionsFiles().get().forEach((path, file) -> projects.put(path, read(file.getAsFile())));
+
+        Map<String, Entry> shared = shared(projects.values());
+        write(outputDir.resolve(VERSIONS_FILE_NAME), shared);
+        projects.forEach((path, entries) -> {
+            Map<String, Entry> overlay = new TreeMap<>(entries);
+            overlay.entrySet().removeIf(entry -> entry.getValue().equals(shared.get(entry.getKey())));
+            write(outputDir.resolve(overlayPath(path)), overlay);
+        });
+    }
+
+    /**
+     * Picks the version most projects use for each dependency, preferring the highest version sorted as a string for
+     * ties.  It is transitive only if every project using that version has it as a transitive dependency.
+     */
+    private static Map<String, Entry> shared(Collection<Map<String, Entry>> projects) {
+        Map<String, Map<String, List<Entry>>> byKeyAndVersion = new TreeMap<>();
+        for (Map<String, Entry> entries : projects) {
+            entries.forEach((key, entry) -> byKeyAndVersion
+                    .computeIfAbsent(key, _key -> new HashMap<>())
+                    .computeIfAbsent(entry.version(), _version -> new ArrayList<>())
+                    .add(entry));
+        }
+
+        Map<String, Entry> result = new LinkedHashMap<>();
+        byKeyAndVersion.forEach((key, versions) -> {
+            Map.Entry<String, List<Entry>> common = versions.entrySet().stream()
+                    .max(Comparator.comparing((Map.Entry<String, List<Entry>> version) -> version.getValue().size())
+                            .thenComparing(Map.Entry::getKey))
+                    .orElseThrow();
+            boolean transitive = common.getValue().stream().allMatch(Entry::transitive);
+            result.put(key, new Entry(common.getKey(), transitive));
+        });
+        return result;
+    }
+
+    private static Map<String, Entry> read(File file) {
+        DependencyVersionIndex index = TestDependencyVersions.readIndex(file);
+        Map<String, Entry> result = new TreeMap<>();
+        index.matching("*").forEach((key, version) -> result.put(
+                key, new Entry(version, index.isTransitive(key).orElse(false))));
+        return result;
+    }
+
+    private static void write(Path file, Map<String, Entry> entries) {
+        List<String> lines = new ArrayList<>();
+        entries.forEach((key, entry) -> {
+            if (!entry.transitive()) {
+                lines.add(key + "=" + entry.version());
+            }
+        });
+        List<String> transitive = entries.entrySet().stream()
+                .filter(entry -> entry.getValue().transitive())
+                .map(entry -> entry.getKey() + "=" + entry.getValue().version())
+                .collect(Collectors.toList());
+        if (!transitive.isEmpty()) {
+            lines.add(DependencyVersionIndex.TRANSITIVE_SECTION);
+            lines.addAll(transitive);
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private record Entry(String version, boolean transitive) {}
+}
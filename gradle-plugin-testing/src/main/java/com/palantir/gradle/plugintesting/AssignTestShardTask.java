@@ -0,0 +1,168 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Decides which specs, and which gradle versions of specs that run against a gradle version parameter, this CI node
+ * runs when tests are split across several nodes.  Every node computes the same assignment from the same inputs, by
+ * greedy bin-packing of the durations in the timings files written by {@link TestShardTimingsTask} in earlier runs,
+ * so the timings files of all nodes of an earlier run need to be made available to every node.  Specs and versions
+ * without timings are split evenly.
+ */
+@CacheableTask
+public abstract class AssignTestShardTask extends DefaultTask {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public AssignTestShardTask() {
+        getOutputFile()
+                .convention(getProject().getLayout().getBuildDirectory().file("plugin-testing/test-shard.json"));
+    }
+
+    @Classpath
+    public abstract ConfigurableFileCollection getTestClassesDirectories();
+
+    /**
+     * Timings files of earlier runs.  Durations of a spec found in several files are averaged.
+     */
+    @InputFiles
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract ConfigurableFileCollection getTimingsFiles();
+
+    @Input
+    public abstract ListProperty<String> getGradleVersions();
+
+    /**
+     * Index of this node, from {@code 0} to {@code shardCount - 1}.
+     */
+    @Input
+    public abstract Property<Integer> getShardIndex();
+
+    @Input
+    public abstract Property<Integer> getShardCount();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public final void doAction() {
+        int index = getShardIndex().get();
+        int count = getShardCount().get();
+        if (count < 1 || index < 0 || index >= count) {
+            throw new GradleException("Invalid test shard " + index + " of " + count
+                    + ", the index needs to be at least 0 and less than the count");
+        }
+
+        Set<String> specs = specs();
+        TestShard shard = TestShard.assign(specs, getGradleVersions().get(), timings(), index, count);
+        shard.write(getOutputFile().get().getAsFile().toPath());
+        getLogger()
+                .lifecycle(
+                        "Test shard {} of {} runs {} of {} specs, and {} specs split by gradle version, with {}s of"
+                                + " builds recorded in earlier runs",
+                        index,
+                        count,
+                        shard.specs().size(),
+                        specs.size(),
+                        shard.gradleVersions().size(),
+                        Math.round(shard.estimatedMillis() / 1000));
+    }
+
+    /**
+     * Returns the concrete top level classes of the test classes directories.
+     */
+    private Set<String> specs() {
+        Set<String> specs = new TreeSet<>();
+        for (File directory : getTestClassesDirectories().getFiles()) {
+            if (!directory.isDirectory()) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(directory.toPath())) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    String fileName = file.getFileName().toString();
+                    if (!fileName.endsWith(".class") || fileName.contains("$") || fileName.contains("-info")) {
+                        continue;
+                    }
+                    try (InputStream in = Files.newInputStream(file)) {
+                        ClassReader reader = new ClassReader(in);
+                        if ((reader.getAccess() & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_INTERFACE)) == 0) {
+                            specs.add(reader.getClassName().replace('/', '.'));
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read test classes in " + directory, e);
+            }
+        }
+        return specs;
+    }
+
+    private Map<String, Map<String, Double>> timings() {
+        Map<String, Map<String, List<Double>>> measurements = new HashMap<>();
+        for (File file : getTimingsFiles().getFiles()) {
+            if (!file.isFile()) {
+                continue;
+            }
+            try {
+                Map<String, Map<String, Double>> timings = MAPPER.readValue(file, new TypeReference<>() {});
+                timings.forEach((spec, versions) -> versions.forEach((version, millis) -> measurements
+                        .computeIfAbsent(spec, _spec -> new HashMap<>())
+                        .computeIfAbsent(version, _version -> new ArrayList<>())
+                        .add(millis)));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read test shard timings from " + file, e);
+            }
+        }
+        return measurements.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, spec -> spec.getValue().entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, version -> version.getValue().stream()
+                                .mapToDouble(Double::doubleValue)
+                                .average()
+                                .orElse(0)))));
+    }
+}
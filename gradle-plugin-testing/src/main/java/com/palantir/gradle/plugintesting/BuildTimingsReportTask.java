@@ -0,0 +1,167 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Aggregates the builds recorded by {@code BuildTimings} in every test task into a JSON report that ranks the slowest
+ * specs, gradle versions and builds, and sums up how much time went into each phase of the builds.
+ */
+@CacheableTask
+public abstract class BuildTimingsReportTask extends DefaultTask {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private static final List<String> PHASES = List.of(
+            "startupMillis", "settingsMillis", "configurationMillis", "taskGraphMillis", "executionMillis");
+
+    public BuildTimingsReportTask() {
+        getMaxEntries().convention(20);
+        getReportFile()
+                .convention(getProject()
+                        .getLayout()
+                        .getBuildDirectory()
+                        .file("reports/plugin-testing/build-timings.json"));
+    }
+
+    /**
+     * JSON lines files written by test tasks.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getTimingsFiles();
+
+    /**
+     * Number of entries in each ranking.
+     */
+    @Input
+    public abstract Property<Integer> getMaxEntries();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public final void doAction() {
+        List<JsonNode> invocations = new ArrayList<>();
+        for (File file : getTimingsFiles().getFiles()) {
+            invocations.addAll(read(file));
+        }
+
+        ObjectNode report = MAPPER.createObjectNode();
+        report.put("invocations", invocations.size());
+        report.put("totalMillis", sum(invocations, "totalMillis"));
+        report.put(
+                "daemonsReused",
+                invocations.stream()
+                        .filter(invocation -> invocation.path("daemonReused").asBoolean(false))
+                        .count());
+        ObjectNode phases = report.putObject("phases");
+        PHASES.forEach(phase -> phases.put(phase, sum(invocations, phase)));
+        report.set("slowestSpecs", ranking(invocations, invocation -> invocation.path("spec").asText()));
+        report.set(
+                "slowestGradleVersions",
+                ranking(invocations, invocation -> invocation.path("gradleVersion").asText()));
+
+        ArrayNode slowest = report.putArray("slowestInvocations");
+        invocations.stream()
+                .sorted(Comparator.comparingDouble((JsonNode invocation) -> invocation.path("totalMillis").asDouble())
+                        .reversed())
+                .limit(getMaxEntries().get())
+                .forEach(slowest::add);
+
+        try {
+            File reportFile = getReportFile().get().getAsFile();
+            MAPPER.writeValue(reportFile, report);
+            getLogger().lifecycle("Build timings report: {}", reportFile.toURI());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Groups the invocations and ranks the groups by their total time.
+     */
+    private ArrayNode ranking(List<JsonNode> invocations, Function<JsonNode, String> groupBy) {
+        Map<String, List<JsonNode>> groups = invocations.stream()
+                .collect(Collectors.groupingBy(groupBy, TreeMap::new, Collectors.toList()));
+        ArrayNode ranking = MAPPER.createArrayNode();
+        groups.entrySet().stream()
+                .sorted(Comparator.comparingDouble(
+                                (Map.Entry<String, List<JsonNode>> group) -> sum(group.getValue(), "totalMillis"))
+                        .reversed())
+                .limit(getMaxEntries().get())
+                .forEach(group -> {
+                    ObjectNode entry = ranking.addObject();
+                    entry.put("name", group.getKey());
+                    entry.put("invocations", group.getValue().size());
+                    entry.put("totalMillis", sum(group.getValue(), "totalMillis"));
+                    entry.put("maxMillis", group.getValue().stream()
+                            .mapToDouble(invocation -> invocation.path("totalMillis").asDouble())
+                            .max()
+                            .orElse(0));
+                    PHASES.forEach(phase -> entry.put(phase, sum(group.getValue(), phase)));
+                });
+        return ranking;
+    }
+
+    private static double sum(List<JsonNode> invocations, String field) {
+        return invocations.stream()
+                .mapToDouble(invocation -> invocation.path(field).asDouble(0))
+                .sum();
+    }
+
+    private static List<JsonNode> read(File file) {
+        try {
+            List<JsonNode> result = new ArrayList<>();
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    result.add(MAPPER.readTree(line));
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read build timings from " + file, e);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Checks the compiled classes of the plugin against the classes of each gradle version it is tested with, reporting
+ * the gradle classes, methods and fields it uses that a version does not have.  Catches use of APIs that are newer
+ * than the oldest tested version, or were removed before the newest one, in seconds rather than by running the tests
+ * against that version.  Only direct references are checked, not reflection or dynamic groovy.
+ */
+@CacheableTask
+public abstract class CheckGradleApiCompatibilityTask extends DefaultTask {
+
+    public CheckGradleApiCompatibilityTask() {
+        getIndexDirectory()
+                .convention(getProject()
+                        .getLayout()
+                        .dir(getProject().provider(() -> new File(
+                                getProject().getGradle().getGradleUserHomeDir(),
+                                "caches/plugin-testing/gradle-api"))));
+        getReportFile()
+                .convention(getProject()
+                        .getLayout()
+                        .getBuildDirectory()
+                        .file("reports/plugin-testing/gradle-api-compatibility.txt"));
+        getFailOnIncompatibility().convention(true);
+    }
+
+    @Classpath
+    public abstract ConfigurableFileCollection getClassesDirectories();
+
+    @Input
+    public abstract SetProperty<String> getGradleVersions();
+
+    /**
+     * Installation directory of each gradle version, as written by {@link PrepareGradleDistributionsTask}.  Its
+     * contents are derived from the gradle versions, which are tracked.
+     */
+    @Internal
+    public abstract RegularFileProperty getGradleDistributionsFile();
+
+    /**
+     * Where the API of each gradle version is cached, shared by all builds on the machine.
+     */
+    @Internal
+    public abstract DirectoryProperty getIndexDirectory();
+
+    @Input
+    public abstract Property<Boolean> getFailOnIncompatibility();
+
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @TaskAction
+    public final void doAction() {
+        Set<GradleApiReferences.Reference> references = GradleApiReferences.scan(getClassesDirectories().getFiles()
+                .stream()
+                .map(File::toPath)
+                .collect(Collectors.toList()));
+        Map<String, Path> installations = installations();
+
+        Map<String, List<String>> problemsByVersion = new TreeMap<>();
+        for (String version : getGradleVersions().get()) {
+            Path installation = installations.get(version);
+            if (installation == null) {
+                throw new GradleException("No distribution of gradle " + version + " in "
+                        + getGradleDistributionsFile().get().getAsFile());
+            }
+            GradleApiIndex index = GradleApiIndex.load(
+                    installation, getIndexDirectory().get().getAsFile().toPath().resolve(version + ".txt"));
+            List<String> problems = problems(index, references);
+            if (!problems.isEmpty()) {
+                problemsByVersion.put(version, problems);
+            }
+        }
+
+        String report = report(problemsByVersion);
+        try {
+            Files.writeString(getReportFile().get().getAsFile().toPath(), report, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (!problemsByVersion.isEmpty() && getFailOnIncompatibility().get()) {
+            throw new GradleException("The plugin uses gradle APIs that are missing from gradle "
+                    + String.join(", ", problemsByVersion.keySet()) + ":\n" + report);
+        }
+    }
+
+    static List<String> problems(GradleApiIndex index, Set<GradleApiReferences.Reference> references) {
+        List<String> problems = new ArrayList<>();
+        for (GradleApiReferences.Reference reference : references) {
+            if (index.classInfo(reference.owner()).isEmpty()) {
+                if (reference.kind() == GradleApiReferences.Kind.CLASS) {
+                    problems.add("Missing class " + reference.owner() + " (used by " + reference.from() + ")");
+                }
+                // missing members of missing classes are reported through the class
+                continue;
+            }
+            switch (reference.kind()) {
+                case METHOD -> {
+                    if (!index.hasMethod(reference.owner(), reference.name(), reference.descriptor())) {
+                        Set<String> descriptors = index.methodDescriptors(reference.owner(), reference.name());
+                        problems.add((descriptors.isEmpty() ? "Missing method " : "Changed signature of ")
+                                + reference.owner() + "." + reference.name() + reference.descriptor()
+                                + (descriptors.isEmpty() ? "" : ", found " + String.join(" ", descriptors))
+                                + " (used by " + reference.from() + ")");
+                    }
+                }
+                case FIELD -> {
+                    if (!index.hasField(reference.owner(), reference.name(), reference.descriptor())) {
+                        problems.add("Missing field " + reference.owner() + "." + reference.name() + ":"
+                                + reference.descriptor() + " (used by " + reference.from() + ")");
+                    }
+                }
+                case CLASS -> {}
+            }
+        }
+        return problems;
+    }
+
+    private static String report(Map<String, List<String>> problemsByVersion) {
+        if (problemsByVersion.isEmpty()) {
+            return "No incompatibilities found\n";
+        }
+        StringBuilder report = new StringBuilder();
+        problemsByVersion.forEach((version, problems) -> {
+            report.append("Gradle ").append(version).append(":\n");
+            problems.forEach(problem -> report.append("  ").append(problem).append('\n'));
+        });
+        return report.toString();
+    }
+
+    private Map<String, Path> installations() {
+        try {
+            return Files.readAllLines(getGradleDistributionsFile().get().getAsFile().toPath()).stream()
+                    .map(String::trim)
+                    .filter(line -> line.contains("="))
+                    .collect(Collectors.toMap(
+                            line -> line.substring(0, line.indexOf('=')),
+                            line -> Paths.get(line.substring(line.indexOf('=') + 1))));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
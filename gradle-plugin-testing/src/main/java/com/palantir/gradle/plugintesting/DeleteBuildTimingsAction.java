@@ -0,0 +1,46 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.gradle.api.Action;
+import org.gradle.api.Task;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.provider.Provider;
+
+/**
+ * Removes the build timings of the previous run before a test task runs, since {@code BuildTimings} only appends.
+ */
+final class DeleteBuildTimingsAction implements Action<Task> {
+    private final Provider<RegularFile> timingsFile;
+
+    DeleteBuildTimingsAction(Provider<RegularFile> timingsFile) {
+        this.timingsFile = timingsFile;
+    }
+
+    @Override
+    public void execute(Task _task) {
+        File file = timingsFile.get().getAsFile();
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyConstraint;
+import org.gradle.api.artifacts.ExcludeRule;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ModuleVersionSelector;
+import org.gradle.api.artifacts.ProjectDependency;
+import org.gradle.api.artifacts.repositories.ArtifactRepository;
+import org.gradle.api.artifacts.repositories.UrlArtifactRepository;
+import org.gradle.api.attributes.Attribute;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+/**
+ * Shares the dependency versions of test runtime classpaths between the projects of a build.  Projects whose
+ * classpaths are declared identically, as far as {@link #fingerprint} can tell, resolve only the first of them.
+ */
+public abstract class DependencyVersionsService implements BuildService<BuildServiceParameters.None> {
+    static final String NAME = "pluginTestingDependencyVersions";
+
+    private final Map<String, List<String>> dependencyCoordinates = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the dependency coordinates of the classpath with the given fingerprint, resolving them only if no other
+     * project of the build has done so yet.
+     */
+    List<String> dependencyCoordinates(String fingerprint, Supplier<List<String>> resolve) {
+        return dependencyCoordinates.computeIfAbsent(fingerprint, _fingerprint -> List.copyOf(resolve.get()));
+    }
+
+    /**
+     * Fingerprints what is declared for the configuration: its dependencies and constraints, including inherited
+     * ones, excludes, forced modules, attributes and the repositories of the project.  Dependency substitution rules
+     * and other resolution strategy callbacks cannot be inspected, so projects that differ only in those must not
+     * share versions.
+     */
+    static String fingerprint(Project project, Configuration configuration) {
+        TreeSet<String> lines = new TreeSet<>();
+        for (Dependency dependency : configuration.getAllDependencies()) {
+            String kind = dependency instanceof ProjectDependency ? "project" : dependency.getClass().getSimpleName();
+            lines.add("dependency " + kind + " "
+                    + coordinates(dependency.getGroup(), dependency.getName(), dependency.getVersion()));
+            if (dependency instanceof ModuleDependency module) {
+                for (ExcludeRule exclude : module.getExcludeRules()) {
+                    lines.add("exclude " + coordinates(dependency.getGroup(), dependency.getName(), null) + " "
+                            + exclude.getGroup() + ":" + exclude.getModule());
+                }
+            }
+        }
+        for (DependencyConstraint constraint : configuration.getAllDependencyConstraints()) {
+            lines.add("constraint " + coordinates(constraint.getGroup(), constraint.getName(), constraint.getVersion())
+                    + " " + constraint.getVersionConstraint());
+        }
+        for (ExcludeRule exclude : configuration.getExcludeRules()) {
+            lines.add("exclude " + exclude.getGroup() + ":" + exclude.getModule());
+        }
+        for (ModuleVersionSelector forced : configuration.getResolutionStrategy().getForcedModules()) {
+            lines.add("force " + coordinates(forced.getGroup(), forced.getName(), forced.getVersion()));
+        }
+        for (Attribute<?> attribute : configuration.getAttributes().keySet()) {
+            lines.add("attribute " + attribute.getName() + "=" + configuration.getAttributes().getAttribute(attribute));
+        }
+
+        StringBuilder text = new StringBuilder();
+        lines.forEach(line -> text.append(line).append('\n'));
+        // unlike everything else, the order of repositories matters
+        for (ArtifactRepository repository : project.getRepositories()) {
+            String url = repository instanceof UrlArtifactRepository urlRepository
+                    ? String.valueOf(urlRepository.getUrl())
+                    : "";
+            text.append("repository ").append(repository.getName()).append(' ').append(url).append('\n');
+        }
+        return sha256(text.toString());
+    }
+
+    private static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String coordinates(String group, String name, String version) {
+        return group + ":" + name + ":" + version;
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The classes of a gradle distribution under {@code org/gradle}, with their supertypes and the signatures of their
+ * non-private methods and fields.  Extracting it from the jars of a distribution takes a few seconds, so it is cached
+ * as a text file per gradle version.
+ */
+final class GradleApiIndex {
+    private static final String FORMAT_VERSION = "gradle-api-index-v1";
+    private static final String GRADLE_PACKAGE = "org/gradle/";
+
+    private final Map<String, ClassInfo> classes;
+
+    private GradleApiIndex(Map<String, ClassInfo> classes) {
+        this.classes = classes;
+    }
+
+    record ClassInfo(String superName, List<String> interfaces, Set<String> methods, Set<String> fields) {}
+
+    /**
+     * Reads the index of the given gradle installation from the cache file, extracting it first if needed.
+     */
+    static GradleApiIndex load(Path installation, Path cacheFile) {
+        try {
+            if (Files.exists(cacheFile)) {
+                Optional<GradleApiIndex> cached = read(Files.readAllLines(cacheFile, StandardCharsets.UTF_8));
+                if (cached.isPresent()) {
+                    return cached.get();
+                }
+            }
+            GradleApiIndex index = extract(installation);
+            Files.createDirectories(cacheFile.getParent());
+            Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            Files.write(tempFile, index.lines(), StandardCharsets.UTF_8);
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return index;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to index the gradle API of " + installation, e);
+        }
+    }
+
+    Optional<ClassInfo> classInfo(String name) {
+        return Optional.ofNullable(classes.get(name));
+    }
+
+    /**
+     * Returns whether the method is declared by the class or one of its supertypes.  Methods inherited from a
+     * supertype outside of gradle, e.g. {@code java/lang/Object}, can't be checked and are assumed to exist.
+     */
+    boolean hasMethod(String owner, String name, String descriptor) {
+        return hasMember(owner, name + descriptor, ClassInfo::methods, new HashSet<>());
+    }
+
+    boolean hasField(String owner, String name, String descriptor) {
+        return hasMember(owner, name + ":" + descriptor, ClassInfo::fields, new HashSet<>());
+    }
+
+    /**
+     * Returns the descriptors of the methods with the given name that the class declares or inherits from gradle
+     * types.
+     */
+    Set<String> methodDescriptors(String owner, String name) {
+        Set<String> result = new TreeSet<>();
+        collectMethodDescriptors(owner, name, result, new HashSet<>());
+        return result;
+    }
+
+    private boolean hasMember(
+            String owner,
+            String member,
+            Function<ClassInfo, Set<String>> members,
+            Set<String> visited) {
+        if (!visited.add(owner)) {
+            return false;
+        }
+        ClassInfo info = classes.get(owner);
+        if (info == null) {
+            return !owner.startsWith(GRADLE_PACKAGE);
+        }
+        if (members.apply(info).contains(member)) {
+            return true;
+        }
+        if (info.superName() != null && hasMember(info.superName(), member, members, visited)) {
+            return true;
+        }
+        return info.interfaces().stream().anyMatch(iface -> hasMember(iface, member, members, visited));
+    }
+
+    private void collectMethodDescriptors(String owner, String name, Set<String> result, Set<String> visited) {
+        ClassInfo info = classes.get(owner);
+        if (info == null || !visited.add(owner)) {
+            return;
+        }
+        info.methods().stream()
+                .filter(method -> method.startsWith(name + "("))
+                .map(method -> method.substring(name.length()))
+                .forEach(result::add);
+        if (info.superName() != null) {
+            collectMethodDescriptors(info.superName(), name, result, visited);
+        }
+        info.interfaces().forEach(iface -> collectMethodDescriptors(iface, name, result, visited));
+    }
+
+    private static GradleApiIndex extract(Path installation) throws IOException {
+        Map<String, ClassInfo> classes = new HashMap<>();
+        List<Path> jars;
+        try (Stream<Path> files = Files.walk(installation.resolve("lib"))) {
+            jars = files.filter(file -> file.getFileName().toString().endsWith(".jar"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        for (Path jar : jars) {
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                for (ZipEntry entry : zip.stream().collect(Collectors.toList())) {
+                    if (entry.getName().startsWith(GRADLE_PACKAGE) && entry.getName().endsWith(".class")) {
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            index(new ClassReader(in), classes);
+                        }
+                    }
+                }
+            }
+        }
+        return new GradleApiIndex(classes);
+    }
+
+    private static void index(ClassReader reader, Map<String, ClassInfo> classes) {
+        List<String> interfaces = List.of(reader.getInterfaces());
+        ClassInfo info = new ClassInfo(reader.getSuperName(), interfaces, new TreeSet<>(), new TreeSet<>());
+        reader.accept(
+                new ClassVisitor(Opcodes.ASM9) {
+                    @Override
+                    public MethodVisitor visitMethod(
+                            int access, String name, String descriptor, String _signature, String[] _exceptions) {
+                        if ((access & Opcodes.ACC_PRIVATE) == 0) {
+                            info.methods().add(name + descriptor);
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public FieldVisitor visitField(
+                            int access, String name, String descriptor, String _signature, Object _value) {
+                        if ((access & Opcodes.ACC_PRIVATE) == 0) {
+                            info.fields().add(name + ":" + descriptor);
+                        }
+                        return null;
+                    }
+                },
+                ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        // the first jar wins, like on a classpath
+        classes.putIfAbsent(reader.getClassName(), info);
+    }
+
+    /**
+     * Serializes the index as a {@code C <class> <super> <interfaces>} line per class followed by a {@code M} line per
+     * method and a {@code F} line per field.
+     */
+    private List<String> lines() {
+        List<String> lines = new ArrayList<>();
+        lines.add(FORMAT_VERSION);
+        new TreeSet<>(classes.keySet()).forEach(name -> {
+            ClassInfo info = classes.get(name);
+            lines.add("C " + name + " " + Optional.ofNullable(info.superName()).orElse("-") + " "
+                    + (info.interfaces().isEmpty() ? "-" : String.join(",", info.interfaces())));
+            info.methods().forEach(method -> lines.add("M " + method));
+            info.fields().forEach(field -> lines.add("F " + field));
+        });
+        return lines;
+    }
+
+    private static Optional<GradleApiIndex> read(List<String> lines) {
+        if (lines.isEmpty() || !lines.get(0).equals(FORMAT_VERSION)) {
+            return Optional.empty();
+        }
+        Map<String, ClassInfo> classes = new HashMap<>();
+        ClassInfo current = null;
+        for (String line : lines.subList(1, lines.size())) {
+            String value = line.substring(2);
+            switch (line.charAt(0)) {
+                case 'C' -> {
+                    String[] parts = value.split(" ");
+                    current = new ClassInfo(
+                            parts[1].equals("-") ? null : parts[1],
+                            parts[2].equals("-") ? List.of() : List.of(parts[2].split(",")),
+                            new HashSet<>(),
+                            new HashSet<>());
+                    classes.put(parts[0], current);
+                }
+                case 'M' -> current.methods().add(value);
+                case 'F' -> current.fields().add(value);
+                default -> {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.of(new GradleApiIndex(classes));
+    }
+}
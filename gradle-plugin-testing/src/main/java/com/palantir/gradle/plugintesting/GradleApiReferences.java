@@ -0,0 +1,213 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * Finds the references of compiled classes to gradle classes, methods and fields.
+ */
+final class GradleApiReferences {
+    private static final String GRADLE_PACKAGE = "org/gradle/";
+
+    enum Kind {
+        CLASS,
+        METHOD,
+        FIELD
+    }
+
+    /**
+     * A reference from a class to a gradle class, or a method or field of one.  Name and descriptor are empty for
+     * classes.
+     */
+    record Reference(Kind kind, String owner, String name, String descriptor, String from)
+            implements Comparable<Reference> {
+        @Override
+        public int compareTo(Reference other) {
+            return toString().compareTo(other.toString());
+        }
+
+        @Override
+        public String toString() {
+            String target = kind == Kind.CLASS ? owner : owner + "." + name + descriptor;
+            return kind + " " + target + " (from " + from + ")";
+        }
+    }
+
+    /**
+     * Returns the references of every class file in the given directories.
+     */
+    static Set<Reference> scan(Iterable<Path> classDirectories) {
+        Set<Reference> references = new TreeSet<>();
+        for (Path dir : classDirectories) {
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path file : files.filter(path -> path.toString().endsWith(".class"))
+                        .collect(Collectors.toList())) {
+                    try (InputStream in = Files.newInputStream(file)) {
+                        new ClassReader(in).accept(new ReferenceCollector(references), ClassReader.SKIP_FRAMES);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return references;
+    }
+
+    private static final class ReferenceCollector extends ClassVisitor {
+        private final Set<Reference> references;
+        private String className;
+
+        ReferenceCollector(Set<Reference> references) {
+            super(Opcodes.ASM9);
+            this.references = references;
+        }
+
+        @Override
+        public void visit(
+                int _version,
+                int _access,
+                String name,
+                String _signature,
+                String superName,
+                String[] interfaces) {
+            className = name;
+            addClass(superName);
+            for (String iface : interfaces) {
+                addClass(iface);
+            }
+        }
+
+        @Override
+        public FieldVisitor visitField(
+                int _access, String _name, String descriptor, String _signature, Object _value) {
+            addType(Type.getType(descriptor));
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(
+                int _access, String _name, String descriptor, String _signature, String[] exceptions) {
+            addType(Type.getMethodType(descriptor));
+            if (exceptions != null) {
+                for (String exception : exceptions) {
+                    addClass(exception);
+                }
+            }
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitTypeInsn(int _opcode, String type) {
+                    addType(Type.getObjectType(type));
+                }
+
+                @Override
+                public void visitFieldInsn(int _opcode, String owner, String name, String fieldDescriptor) {
+                    addMember(Kind.FIELD, owner, name, fieldDescriptor);
+                }
+
+                @Override
+                public void visitMethodInsn(
+                        int _opcode, String owner, String name, String methodDescriptor, boolean _isInterface) {
+                    addMember(Kind.METHOD, owner, name, methodDescriptor);
+                }
+
+                @Override
+                public void visitInvokeDynamicInsn(
+                        String _name, String _descriptor, Handle _bootstrapMethod, Object... bootstrapArguments) {
+                    // method references, e.g. Project::getName
+                    for (Object argument : bootstrapArguments) {
+                        if (argument instanceof Handle handle) {
+                            addMember(
+                                    handle.getTag() <= Opcodes.H_PUTSTATIC ? Kind.FIELD : Kind.METHOD,
+                                    handle.getOwner(),
+                                    handle.getName(),
+                                    handle.getDesc());
+                        }
+                    }
+                }
+
+                @Override
+                public void visitLdcInsn(Object value) {
+                    if (value instanceof Type type) {
+                        addType(type);
+                    }
+                }
+
+                @Override
+                public void visitTryCatchBlock(
+                        Label _start,
+                        Label _end,
+                        Label _handler,
+                        String type) {
+                    addClass(type);
+                }
+            };
+        }
+
+        private void addMember(Kind kind, String owner, String name, String descriptor) {
+            if (owner.startsWith("[")) {
+                addType(Type.getType(owner));
+                return;
+            }
+            addClass(owner);
+            if (owner.startsWith(GRADLE_PACKAGE)) {
+                references.add(new Reference(kind, owner, name, descriptor, className));
+            }
+            addType(kind == Kind.FIELD ? Type.getType(descriptor) : Type.getMethodType(descriptor));
+        }
+
+        private void addType(Type type) {
+            switch (type.getSort()) {
+                case Type.ARRAY -> addType(type.getElementType());
+                case Type.OBJECT -> addClass(type.getInternalName());
+                case Type.METHOD -> {
+                    addType(type.getReturnType());
+                    for (Type argument : type.getArgumentTypes()) {
+                        addType(argument);
+                    }
+                }
+                default -> {}
+            }
+        }
+
+        private void addClass(String name) {
+            if (name != null && name.startsWith(GRADLE_PACKAGE)) {
+                references.add(new Reference(Kind.CLASS, name, "", "", className));
+            }
+        }
+    }
+
+    private GradleApiReferences() {}
+}
@@ -0,0 +1,34 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.testing.Test;
+
+/**
+ * Test task that runs the test suite against a single gradle version.  Registered once per configured gradle version
+ * when {@link PluginTestingExtension#getShardTestsByGradleVersion()} is enabled.
+ */
+public abstract class GradleVersionTest extends Test {
+
+    /**
+     * The only gradle version returned by {@code GradleTestVersions.getGradleVersionsForTests()} in this task.
+     */
+    @Input
+    public abstract Property<String> getGradleVersion();
+}
@@ -0,0 +1,123 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.sun.management.OperatingSystemMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Optional;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.tasks.testing.Test;
+
+/**
+ * Sizes the forks of a test task to as many as the physical memory of the machine can hold, counting the
+ * heap of each fork and of the TestKit daemons each fork keeps alive.
+ */
+final class MemoryAwareForks {
+    /**
+     * Metaspace, code cache, thread stacks and other memory a JVM uses beyond its heap.
+     */
+    static final long NON_HEAP_BYTES = 384L * 1024 * 1024;
+
+    /**
+     * Heap of test forks when the test task does not set one.
+     */
+    static final long DEFAULT_FORK_HEAP_BYTES = 512L * 1024 * 1024;
+
+    /**
+     * Sets {@code maxParallelForks} of the given test task once the task graph is ready, which is still configuration
+     * time but late enough to see the final heap settings of the task.
+     */
+    static void configure(
+            Test test,
+            Provider<Boolean> enabled,
+            Provider<Integer> daemonHeapMegabytes,
+            Provider<Integer> daemonsPerFork) {
+        Provider<Integer> forks = enabled.flatMap(isEnabled -> isEnabled
+                ? daemonHeapMegabytes.zip(daemonsPerFork, (heap, daemons) -> maxParallelForks(test, heap, daemons))
+                : test.getProject().getProviders().provider(() -> null));
+        test.getProject().getGradle().getTaskGraph().whenReady(graph -> {
+            if (graph.hasTask(test) && forks.isPresent()) {
+                test.setMaxParallelForks(forks.get());
+            }
+        });
+    }
+
+    private static int maxParallelForks(Test test, int daemonHeapMegabytes, int daemonsPerFork) {
+        long forkBytes = heapBytes(test.getMaxHeapSize()).orElse(DEFAULT_FORK_HEAP_BYTES) + NON_HEAP_BYTES;
+        long daemonBytes = daemonHeapMegabytes * 1024L * 1024 + NON_HEAP_BYTES;
+        int forks = maxParallelForks(
+                availableMemoryBytes(),
+                forkBytes,
+                daemonBytes,
+                daemonsPerFork,
+                Runtime.getRuntime().availableProcessors());
+        test.getLogger()
+                .info(
+                        "Running {} with {} forks, each using up to {} MB with {} TestKit daemons",
+                        test.getName(),
+                        forks,
+                        (forkBytes + daemonsPerFork * daemonBytes) / (1024 * 1024),
+                        daemonsPerFork);
+        return forks;
+    }
+
+    /**
+     * Returns how many forks, each with the given number of daemons, fit into the available memory, between one and
+     * the given maximum.
+     */
+    static int maxParallelForks(
+            long availableBytes, long forkBytes, long daemonBytes, int daemonsPerFork, int maxForks) {
+        long perFork = forkBytes + daemonsPerFork * daemonBytes;
+        return (int) Math.max(1, Math.min(maxForks, availableBytes / perFork));
+    }
+
+    /**
+     * Parses a heap size in the format of {@code -Xmx}, e.g. {@code 512m} or {@code 2g}.
+     */
+    static Optional<Long> heapBytes(String size) {
+        if (size == null || size.isBlank()) {
+            return Optional.empty();
+        }
+        String normalized = size.trim().toLowerCase(Locale.ROOT);
+        char unit = normalized.charAt(normalized.length() - 1);
+        long multiplier =
+                switch (unit) {
+                    case 'k' -> 1024L;
+                    case 'm' -> 1024L * 1024;
+                    case 'g' -> 1024L * 1024 * 1024;
+                    case 't' -> 1024L * 1024 * 1024 * 1024;
+                    default -> 1L;
+                };
+        String digits = multiplier == 1 ? normalized : normalized.substring(0, normalized.length() - 1);
+        try {
+            return Optional.of(Long.parseLong(digits) * multiplier);
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Physical memory of the machine, or the memory limit of its container, less what this gradle daemon may use.
+     */
+    private static long availableMemoryBytes() {
+        OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        return os.getTotalMemorySize() - Runtime.getRuntime().maxMemory();
+    }
+
+    private MemoryAwareForks() {}
+}
@@ -0,0 +1,197 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFile;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.process.CommandLineArgumentProvider;
+
+/**
+ * Passes the settings of the {@link PluginTestingExtension} to tests as system properties.  Files are tracked by
+ * their content and relative path so that the test task is relocatable, and absolute locations that do not affect
+ * test results are not tracked at all.
+ */
+public abstract class PluginTestingArgumentProvider implements CommandLineArgumentProvider {
+
+    @InputFile
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getDependencyVersionsFile();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getDependencyVersionsOverlayFile();
+
+    /**
+     * Comma separated gradle versions of the active tier.
+     */
+    @Input
+    public abstract Property<String> getGradleVersions();
+
+    /**
+     * Comma separated gradle versions of every tier.
+     */
+    @Input
+    public abstract Property<String> getAllGradleVersions();
+
+    @Input
+    public abstract Property<GradleVersionTier> getGradleVersionTier();
+
+    @Input
+    public abstract Property<Boolean> getIgnoreGradleDeprecations();
+
+    @Input
+    public abstract SetProperty<String> getDeprecationPackages();
+
+    @Input
+    public abstract Property<Boolean> getOfflineMavenRepository();
+
+    /**
+     * Contents are derived from the test runtime classpath, which the test task already tracks.
+     */
+    @Internal
+    public abstract DirectoryProperty getMavenRepositoryDirectory();
+
+    @Input
+    public abstract Property<Boolean> getPrepareGradleDistributions();
+
+    /**
+     * Contents are derived from the gradle versions, which are tracked.
+     */
+    @Internal
+    public abstract RegularFileProperty getGradleDistributionsFile();
+
+    @Internal
+    public abstract DirectoryProperty getTestKitBaseDirectory();
+
+    @Input
+    public abstract Property<Integer> getMaxTestKitDaemons();
+
+    @Input
+    @Optional
+    public abstract Property<String> getTestKitDaemonJvmArgs();
+
+    @Input
+    public abstract Property<Boolean> getCacheTestResults();
+
+    @Internal
+    public abstract DirectoryProperty getTestResultCacheDirectory();
+
+    @Input
+    public abstract Property<Boolean> getRecordBuildTimings();
+
+    /**
+     * Registered as an output of the test task.
+     */
+    @Internal
+    public abstract RegularFileProperty getBuildTimingsFile();
+
+    @InputFile
+    @Optional
+    @PathSensitive(PathSensitivity.NONE)
+    public abstract RegularFileProperty getTestShardFile();
+
+    @Override
+    public final Iterable<String> asArguments() {
+        List<String> args = new ArrayList<>();
+        args.add(systemProperty(
+                TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY,
+                getDependencyVersionsFile().get().getAsFile().getAbsolutePath()));
+        if (getDependencyVersionsOverlayFile().isPresent()) {
+            args.add(systemProperty(
+                    TestDependencyVersions.TEST_DEPENDENCIES_OVERLAY_FILE_SYSTEM_PROPERTY,
+                    getDependencyVersionsOverlayFile().get().getAsFile().getAbsolutePath()));
+        }
+        args.add(systemProperty(GradleTestVersions.TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY, getGradleVersions().get()));
+        args.add(systemProperty(
+                GradleTestVersions.TEST_ALL_GRADLE_VERSIONS_SYSTEM_PROPERTY,
+                getAllGradleVersions().get()));
+        args.add(systemProperty(
+                GradleTestVersions.TEST_GRADLE_VERSION_TIER_SYSTEM_PROPERTY,
+                getGradleVersionTier().get().toString()));
+
+        if (getOfflineMavenRepository().get()) {
+            args.add(systemProperty(
+                    TestContentHelpers.TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY,
+                    getMavenRepositoryDirectory().get().getAsFile().getAbsolutePath()));
+        }
+
+        if (getPrepareGradleDistributions().get()) {
+            args.add(systemProperty(
+                    GradleTestVersions.TEST_GRADLE_DISTRIBUTIONS_FILE_SYSTEM_PROPERTY,
+                    getGradleDistributionsFile().get().getAsFile().getAbsolutePath()));
+        }
+
+        args.add(systemProperty(
+                TestKitRunners.TEST_KIT_BASE_DIR_SYSTEM_PROPERTY,
+                getTestKitBaseDirectory().get().getAsFile().getAbsolutePath()));
+        args.add(systemProperty(
+                TestKitRunners.TEST_KIT_MAX_DAEMONS_SYSTEM_PROPERTY,
+                String.valueOf(getMaxTestKitDaemons().get())));
+        if (getTestKitDaemonJvmArgs().isPresent()) {
+            args.add(systemProperty(
+                    TestKitRunners.TEST_KIT_DAEMON_JVM_ARGS_SYSTEM_PROPERTY,
+                    getTestKitDaemonJvmArgs().get()));
+        }
+
+        if (getCacheTestResults().get()) {
+            args.add(systemProperty(
+                    TestResultCache.TEST_RESULT_CACHE_DIR_SYSTEM_PROPERTY,
+                    getTestResultCacheDirectory().get().getAsFile().getAbsolutePath()));
+        }
+
+        if (getRecordBuildTimings().get()) {
+            args.add(systemProperty(
+                    BuildTimings.TEST_BUILD_TIMINGS_FILE_SYSTEM_PROPERTY,
+                    getBuildTimingsFile().get().getAsFile().getAbsolutePath()));
+        }
+
+        if (getTestShardFile().isPresent()) {
+            args.add(systemProperty(
+                    TestShard.TEST_SHARD_FILE_SYSTEM_PROPERTY,
+                    getTestShardFile().get().getAsFile().getAbsolutePath()));
+        }
+
+        if (!getDeprecationPackages().get().isEmpty()) {
+            args.add(systemProperty(
+                    DeprecationFilter.TEST_DEPRECATION_PACKAGES_SYSTEM_PROPERTY,
+                    getDeprecationPackages().get().stream().sorted().collect(Collectors.joining(","))));
+        }
+
+        // ignore gradle deprecations so that nebula tests don't fail, from
+        // https://github.com/nebula-plugins/nebula-test/blob/main/src/main/groovy/nebula/test/IntegrationBase.groovy
+        if (getIgnoreGradleDeprecations().get()) {
+            args.add(systemProperty("ignoreDeprecations", "true"));
+        }
+        return args;
+    }
+
+    private static String systemProperty(String name, String value) {
+        return "-D" + name + "=" + value;
+    }
+}
@@ -16,8 +16,13 @@
 
 package com.palantir.gradle.plugintesting;
 
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.gradle.api.file.ConfigurableFileCollection;
 import org.gradle.api.provider.Property;
 import org.gradle.api.provider.SetProperty;
+import org.gradle.util.GradleVersion;
 
 public abstract class PluginTestingExtension {
     public static final String EXTENSION_NAME = "gradleTestUtils";
@@ -29,14 +34,166 @@ public abstract class PluginTestingExtension {
     public abstract Property<Boolean> getIgnoreGradleDeprecations();
 
     /**
-     * Gradle versions to test against.
+     * Packages of the plugin under test.  {@code DeprecationFilter.forPluginUnderTest()} fails only on gradle
+     * deprecations that code in these packages caused, scanning build output as it streams rather than once the build
+     * has finished.  Use it with {@link #getIgnoreGradleDeprecations()} to replace nebula's check of the whole output.
+     */
+    public abstract SetProperty<String> getDeprecationPackages();
+
+    /**
+     * Gradle versions to test against.  This is the {@link GradleVersionTier#FULL full} tier.
      */
     public abstract SetProperty<String> getGradleVersions();
 
+    /**
+     * Gradle versions of the {@link GradleVersionTier#EDGE edge} tier.  Defaults to the oldest and newest of
+     * {@link #getGradleVersions()} and the version of gradle running the build.
+     */
+    public abstract SetProperty<String> getEdgeGradleVersions();
+
+    /**
+     * Which tier of gradle versions {@code GradleTestVersions.getGradleVersionsForTests()} returns.  Defaults to the
+     * {@code pluginTestingGradleVersionTier} gradle property (e.g. {@code -PpluginTestingGradleVersionTier=edge} for
+     * pull requests), or {@code full} if that is not set.
+     */
+    public abstract Property<GradleVersionTier> getGradleVersionTier();
+
+    /**
+     * Whether to register a separate test task per gradle version (e.g. {@code testGradle8_8}) instead of running
+     * every version in the {@code test} task.  The shards can run in parallel and are cached independently.  When
+     * enabled, the {@code test} task is skipped and depends on the {@code testAllGradleVersions} lifecycle task.
+     */
+    public abstract Property<Boolean> getShardTestsByGradleVersion();
+
+    /**
+     * Whether to write the resolved test runtime classpath into a local maven repository that builds generated by
+     * tests can use through {@code TestContentHelpers.offlineRepositories()}.
+     */
+    public abstract Property<Boolean> getOfflineMavenRepository();
+
+    /**
+     * Whether to download and unpack every gradle version in {@link #getGradleVersions()} once, into a directory
+     * shared by all builds, before tests run.  Tests can find them using
+     * {@code GradleTestVersions.getGradleInstallation}.
+     */
+    public abstract Property<Boolean> getPrepareGradleDistributions();
+
+    /**
+     * Location gradle distributions are downloaded from when {@link #getPrepareGradleDistributions()} is enabled.
+     * Defaults to {@code https://services.gradle.org/distributions}, and can be a {@code file:} URL of a local mirror.
+     */
+    public abstract Property<String> getGradleDistributionBaseUrl();
+
+    /**
+     * Whether test tasks depend on {@code checkGradleApiCompatibility}, which checks the compiled classes of the
+     * plugin against the classes of every version in {@link #getGradleVersions()}, so that use of a gradle API that
+     * a tested version lacks fails the build before any test runs.
+     */
+    public abstract Property<Boolean> getCheckGradleApiCompatibilityBeforeTests();
+
+    /**
+     * Maximum number of gradle versions with live TestKit daemons in each test fork when using
+     * {@code TestKitRunners}.  Daemons of the least recently used version are stopped beyond this.
+     */
+    public abstract Property<Integer> getMaxTestKitDaemonsPerFork();
+
+    /**
+     * Whether to set {@code maxParallelForks} of test tasks to as many forks as the physical memory of the machine can
+     * hold, counting each fork's heap and the TestKit daemons it keeps alive (one per gradle version, up to
+     * {@link #getMaxTestKitDaemonsPerFork()}).  Daemons started through {@code TestKitRunners} get
+     * {@link #getTestKitDaemonHeapMegabytes()} of heap, and are stopped once the test task finishes.
+     */
+    public abstract Property<Boolean> getMemoryAwareTestForks();
+
+    /**
+     * Maximum heap of TestKit daemons when {@link #getMemoryAwareTestForks()} is enabled.
+     */
+    public abstract Property<Integer> getTestKitDaemonHeapMegabytes();
+
+    /**
+     * Whether to record every module on the test runtime classpath, not just the first level dependencies, so that
+     * {@code TestDependencyVersions} can resolve transitive dependencies as well.
+     */
+    public abstract Property<Boolean> getIncludeTransitiveDependencyVersions();
+
+    /**
+     * Whether projects of the build whose test runtime classpaths are declared identically share a single resolution
+     * of their dependency versions.  Only enable this if no project customises resolution with substitution rules or
+     * other resolution strategy callbacks, which can't be compared.
+     */
+    public abstract Property<Boolean> getShareDependencyVersionResolution();
+
+    /**
+     * Whether tests read a dependency versions file shared by every project of the build that enables this, written
+     * by the root project, along with an overlay of the versions where this project differs.  Tests can then also
+     * resolve versions of dependencies that only other projects use.
+     */
+    public abstract Property<Boolean> getAggregateDependencyVersions();
+
+    /**
+     * Whether spock features that run against a gradle version skip iterations that passed in an earlier run with the
+     * same plugin under test, spec classes, dependency versions and gradle version.  Skipped iterations are reported
+     * as skipped.
+     */
+    public abstract Property<Boolean> getCacheTestResults();
+
+    /**
+     * Whether builds run through {@code BuildTimings} are recorded, per test task, into
+     * {@code build/plugin-testing/build-timings/<task>.jsonl} for the {@code buildTimingsReport} task.
+     */
+    public abstract Property<Boolean> getRecordBuildTimings();
+
+    /**
+     * Number of CI nodes that tests are split across.  Defaults to the {@code pluginTestingTestShardCount} gradle
+     * property, or {@code 1}.  With more than one node, each node runs its share of the specs, and of the gradle
+     * versions of specs that run against a gradle version parameter, balanced by the durations in
+     * {@link #getTestShardTimingsFiles()}.
+     */
+    public abstract Property<Integer> getTestShardCount();
+
+    /**
+     * Index of this CI node, from {@code 0} to {@code testShardCount - 1}.  Defaults to the
+     * {@code pluginTestingTestShardIndex} gradle property, or {@code 0}.
+     */
+    public abstract Property<Integer> getTestShardIndex();
+
+    /**
+     * Timings files written by the {@code writeTestShardTimings} task of every node of an earlier run, which runs after
+     * tests when {@link #getRecordBuildTimings()} is enabled.  Every node needs the same files to compute the same
+     * assignment.  Specs without timings are split evenly.
+     */
+    public abstract ConfigurableFileCollection getTestShardTimingsFiles();
+
     public PluginTestingExtension() {
         getIgnoreGradleDeprecations().convention(true);
+        getDeprecationPackages().convention(Set.of());
+        getShardTestsByGradleVersion().convention(false);
+        getOfflineMavenRepository().convention(false);
+        getPrepareGradleDistributions().convention(false);
+        getGradleDistributionBaseUrl().convention(PrepareGradleDistributionsTask.DEFAULT_DISTRIBUTION_BASE_URL);
+        getCheckGradleApiCompatibilityBeforeTests().convention(false);
+        getMaxTestKitDaemonsPerFork().convention(TestKitRunners.DEFAULT_MAX_DAEMONS);
+        getMemoryAwareTestForks().convention(false);
+        getTestKitDaemonHeapMegabytes().convention(512);
+        getIncludeTransitiveDependencyVersions().convention(false);
+        getShareDependencyVersionResolution().convention(false);
+        getAggregateDependencyVersions().convention(false);
+        getCacheTestResults().convention(false);
+        getRecordBuildTimings().convention(false);
+        getTestShardCount().convention(1);
+        getTestShardIndex().convention(0);
         // TODO(#XXX): Should this be the latest gradle 8, or maybe whatever this plugin is compiled against?
         // or is this the set of "milestone" versions and we dynamically add the version of the consuming project?
         getGradleVersions().convention(GradleTestVersions.DEFAULT_TEST_GRADLE_VERSIONS);
+        getEdgeGradleVersions().convention(getGradleVersions().map(PluginTestingExtension::edgeGradleVersions));
+    }
+
+    private static Set<String> edgeGradleVersions(Set<String> versions) {
+        Set<String> result = new LinkedHashSet<>();
+        Comparator<String> byVersion = Comparator.comparing(GradleVersion::version);
+        versions.stream().min(byVersion).ifPresent(result::add);
+        versions.stream().max(byVersion).ifPresent(result::add);
+        result.add(GradleVersion.current().getVersion());
+        return result;
     }
 }
@@ -17,17 +17,28 @@
 package com.palantir.gradle.plugintesting;
 
 import com.palantir.baseline.tasks.CheckUnusedDependenciesParentTask;
+import java.util.List;
 import java.util.Optional;
-import org.gradle.api.Action;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.gradle.api.NamedDomainObjectProvider;
 import org.gradle.api.Plugin;
 import org.gradle.api.Project;
 import org.gradle.api.Task;
+import org.gradle.api.artifacts.ArtifactCollection;
 import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileTree;
+import org.gradle.api.file.RegularFile;
+import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
+import org.gradle.api.plugins.JavaPlugin;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.SourceSet;
 import org.gradle.api.tasks.SourceSetContainer;
 import org.gradle.api.tasks.TaskProvider;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.api.tasks.testing.junitplatform.JUnitPlatformOptions;
+import org.gradle.language.base.plugins.LifecycleBasePlugin;
 
 public class PluginTestingPlugin implements Plugin<Project> {
     /**
@@ -35,6 +46,21 @@ public class PluginTestingPlugin implements Plugin<Project> {
      */
     static final String PLUGIN_VERSION_PROPERTY_NAME = "pluginTestingPluginVersion";
 
+    static final String ALL_GRADLE_VERSIONS_TEST_TASK_NAME = "testAllGradleVersions";
+
+    /**
+     * Gradle property that selects the {@link GradleVersionTier}, e.g. {@code -PpluginTestingGradleVersionTier=edge}.
+     */
+    static final String GRADLE_VERSION_TIER_PROPERTY_NAME = "pluginTestingGradleVersionTier";
+
+    /**
+     * Gradle properties that split tests across CI nodes, e.g. {@code -PpluginTestingTestShardIndex=0
+     * -PpluginTestingTestShardCount=4}.
+     */
+    static final String TEST_SHARD_INDEX_PROPERTY_NAME = "pluginTestingTestShardIndex";
+
+    static final String TEST_SHARD_COUNT_PROPERTY_NAME = "pluginTestingTestShardCount";
+
     private static final String MAVEN_GROUP = "com.palantir.gradle.plugintesting";
     private static final String CORE_MAVEN_NAME = "plugin-testing-core";
     private static final String CORE_MAVEN_COORDINATES = MAVEN_GROUP + ":" + CORE_MAVEN_NAME;
@@ -44,7 +70,26 @@ public class PluginTestingPlugin implements Plugin<Project> {
      */
     @Override
     public void apply(Project project) {
-        project.getExtensions().create(PluginTestingExtension.EXTENSION_NAME, PluginTestingExtension.class);
+        PluginTestingExtension testUtilsExt =
+                project.getExtensions().create(PluginTestingExtension.EXTENSION_NAME, PluginTestingExtension.class);
+        testUtilsExt
+                .getGradleVersionTier()
+                .convention(project.getProviders()
+                        .gradleProperty(GRADLE_VERSION_TIER_PROPERTY_NAME)
+                        .map(GradleVersionTier::fromName)
+                        .orElse(GradleVersionTier.FULL));
+        testUtilsExt
+                .getTestShardIndex()
+                .convention(project.getProviders()
+                        .gradleProperty(TEST_SHARD_INDEX_PROPERTY_NAME)
+                        .map(Integer::parseInt)
+                        .orElse(0));
+        testUtilsExt
+                .getTestShardCount()
+                .convention(project.getProviders()
+                        .gradleProperty(TEST_SHARD_COUNT_PROPERTY_NAME)
+                        .map(Integer::parseInt)
+                        .orElse(1));
         // need the SourceSetContainer extension so need to wait until java plugin is applied
         project.getPluginManager().withPlugin("java", _unused -> {
             doApply(project);
@@ -56,6 +101,10 @@ public class PluginTestingPlugin implements Plugin<Project> {
 
         addTestDependency(project);
 
+        Provider<DependencyVersionsService> dependencyVersionsService = project.getGradle()
+                .getSharedServices()
+                .registerIfAbsent(DependencyVersionsService.NAME, DependencyVersionsService.class, _spec -> {});
+
         TaskProvider<TestDependencyVersionsTask> testDependencyVersions = project.getTasks()
                 .register("writeTestDependencyVersions", TestDependencyVersionsTask.class, task -> {
                     SourceSetContainer sourceSetContainer =
@@ -63,42 +112,322 @@ public class PluginTestingPlugin implements Plugin<Project> {
                     SourceSet sourceSet = sourceSetContainer.getByName(SourceSet.TEST_SOURCE_SET_NAME);
                     NamedDomainObjectProvider<Configuration> testRuntimeConfig =
                             project.getConfigurations().named(sourceSet.getRuntimeClasspathConfigurationName());
-                    task.getClasspathConfiguration().set(testRuntimeConfig);
+                    task.getRootComponent()
+                            .set(testRuntimeConfig.flatMap(configuration -> configuration
+                                    .getIncoming()
+                                    .getResolutionResult()
+                                    .getRootComponent()));
+                    task.getIncludeTransitiveDependencies().set(testUtilsExt.getIncludeTransitiveDependencyVersions());
+                    task.getClasspathFingerprint()
+                            .set(testUtilsExt
+                                    .getShareDependencyVersionResolution()
+                                    .flatMap(enabled -> enabled
+                                            ? testRuntimeConfig.map(configuration ->
+                                                    DependencyVersionsService.fingerprint(project, configuration))
+                                            : project.getProviders().provider(() -> null)));
+                    task.getDependencyVersionsService().set(dependencyVersionsService);
+                    task.usesService(dependencyVersionsService);
+                });
+
+        // builds that do not aggregate should not get a root task that does nothing
+        project.afterEvaluate(_project -> {
+            if (testUtilsExt.getAggregateDependencyVersions().get()) {
+                aggregatedDependencyVersions(project).configure(task -> task.getProjectVersionsFiles()
+                        .put(
+                                project.getPath(),
+                                testDependencyVersions.flatMap(TestDependencyVersionsTask::getOutputFile)));
+            }
+        });
+
+        TaskProvider<TestMavenRepositoryTask> testMavenRepository = project.getTasks()
+                .register("writeTestMavenRepository", TestMavenRepositoryTask.class, task -> {
+                    SourceSetContainer sourceSetContainer =
+                            project.getExtensions().getByType(SourceSetContainer.class);
+                    SourceSet sourceSet = sourceSetContainer.getByName(SourceSet.TEST_SOURCE_SET_NAME);
+                    ArtifactCollection artifacts = project.getConfigurations()
+                            .getByName(sourceSet.getRuntimeClasspathConfigurationName())
+                            .getIncoming()
+                            .getArtifacts();
+                    task.getResolvedArtifacts().set(artifacts.getResolvedArtifacts());
+                    task.getArtifactFiles().from(artifacts.getArtifactFiles());
+                });
+
+        TaskProvider<PrepareGradleDistributionsTask> gradleDistributions = project.getTasks()
+                .register("prepareTestGradleDistributions", PrepareGradleDistributionsTask.class, task -> {
+                    // tests may opt into every version regardless of the tier
+                    task.getGradleVersions().addAll(testUtilsExt.getGradleVersions());
+                    task.getGradleVersions().addAll(activeGradleVersions(testUtilsExt));
+                    task.getDistributionBaseUrl().set(testUtilsExt.getGradleDistributionBaseUrl());
+                });
+
+        TaskProvider<CheckGradleApiCompatibilityTask> gradleApiCompatibility = project.getTasks()
+                .register("checkGradleApiCompatibility", CheckGradleApiCompatibilityTask.class, task -> {
+                    task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+                    task.setDescription("Checks the plugin only uses gradle APIs that every tested version has.");
+                    SourceSetContainer sourceSetContainer =
+                            project.getExtensions().getByType(SourceSetContainer.class);
+                    SourceSet sourceSet = sourceSetContainer.getByName(SourceSet.MAIN_SOURCE_SET_NAME);
+                    task.getClassesDirectories().from(sourceSet.getOutput().getClassesDirs());
+                    task.getGradleVersions().set(testUtilsExt.getGradleVersions());
+                    task.getGradleDistributionsFile()
+                            .set(gradleDistributions.flatMap(PrepareGradleDistributionsTask::getOutputFile));
+                    task.dependsOn(gradleDistributions);
+                });
+
+        Provider<FileTree> buildTimingsFiles = project.getLayout()
+                .getBuildDirectory()
+                .dir("plugin-testing/build-timings")
+                .map(dir -> dir.getAsFileTree().matching(files -> files.include("*.jsonl")));
+        project.getTasks().register("buildTimingsReport", BuildTimingsReportTask.class, task -> {
+            task.setDescription("Ranks the slowest specs and gradle versions by the builds they ran.");
+            task.getTimingsFiles().from(buildTimingsFiles);
+            task.mustRunAfter(project.getTasks().withType(Test.class));
+        });
+
+        TaskProvider<TestShardTimingsTask> testShardTimings = project.getTasks()
+                .register("writeTestShardTimings", TestShardTimingsTask.class, task -> {
+                    task.setDescription("Sums up the builds of each spec, for balancing test shards in later runs.");
+                    task.getBuildTimingsFiles().from(buildTimingsFiles);
+                    task.mustRunAfter(project.getTasks().withType(Test.class));
+                });
+
+        TaskProvider<AssignTestShardTask> assignTestShard = project.getTasks()
+                .register("assignTestShard", AssignTestShardTask.class, task -> {
+                    task.setDescription("Assigns specs and gradle versions to this CI node by past durations.");
+                    SourceSetContainer sourceSetContainer =
+                            project.getExtensions().getByType(SourceSetContainer.class);
+                    SourceSet sourceSet = sourceSetContainer.getByName(SourceSet.TEST_SOURCE_SET_NAME);
+                    task.getTestClassesDirectories().from(sourceSet.getOutput().getClassesDirs());
+                    task.getTimingsFiles().from(testUtilsExt.getTestShardTimingsFiles());
+                    task.getGradleVersions().set(activeGradleVersions(testUtilsExt).map(List::copyOf));
+                    task.getShardIndex().set(testUtilsExt.getTestShardIndex());
+                    task.getShardCount().set(testUtilsExt.getTestShardCount());
+                });
+
+        Provider<Directory> testKitBaseDirectory =
+                project.getLayout().getBuildDirectory().dir("plugin-testing/testkit");
+        TaskProvider<StopIdleTestKitDaemonsTask> stopIdleTestKitDaemons = project.getTasks()
+                .register("stopIdleTestKitDaemons", StopIdleTestKitDaemonsTask.class, task -> {
+                    task.setDescription("Stops TestKit daemons that no running test fork can use.");
+                    task.getTestKitBaseDirectory().set(testKitBaseDirectory);
                 });
 
         project.getTasks().withType(Test.class).configureEach(test -> {
-            test.dependsOn(testDependencyVersions);
-
-            // need to use the doFirst so that any custom settings on the extension are applied before reading
-            // the values and setting the system properties.
-            Action<Task> action = new Action<>() {
-                @Override
-                public void execute(Task _task) {
-                    // add system property for name of file to read for dependency versions
-                    test.systemProperty(
-                            TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY,
-                            testDependencyVersions
-                                    .get()
-                                    .getOutputFile()
-                                    .get()
-                                    .getAsFile()
-                                    .getAbsolutePath());
-
-                    // add system property for what versions of gradle should be used in tests
-                    String versions =
-                            String.join(",", testUtilsExt.getGradleVersions().get());
-                    test.systemProperty(GradleTestVersions.TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY, versions);
-
-                    // add system property to ignore gradle deprecations so that nebula tests don't fail
-                    if (testUtilsExt.getIgnoreGradleDeprecations().get()) {
-                        // from
-                        // https://github.com/nebula-plugins/nebula-test/blob/main/src/main/groovy/nebula/test/IntegrationBase.groovy
-                        test.systemProperty("ignoreDeprecations", "true");
-                    }
-                }
-            };
-            test.doFirst(action);
+            test.dependsOn(testUtilsExt
+                    .getAggregateDependencyVersions()
+                    .map(enabled -> enabled
+                            ? List.of(aggregatedDependencyVersions(project))
+                            : List.of(testDependencyVersions)));
+            test.dependsOn(testUtilsExt
+                    .getCheckGradleApiCompatibilityBeforeTests()
+                    .map(enabled -> enabled ? List.of(gradleApiCompatibility) : List.of()));
+            test.dependsOn(testUtilsExt
+                    .getPrepareGradleDistributions()
+                    .map(enabled -> enabled ? List.of(gradleDistributions) : List.of()));
+            test.dependsOn(testUtilsExt
+                    .getOfflineMavenRepository()
+                    .map(enabled -> enabled ? List.of(testMavenRepository) : List.of()));
+            test.dependsOn(testUtilsExt
+                    .getTestShardCount()
+                    .map(count -> count > 1 ? List.of(assignTestShard) : List.of()));
+
+            PluginTestingArgumentProvider arguments =
+                    project.getObjects().newInstance(PluginTestingArgumentProvider.class);
+            arguments
+                    .getDependencyVersionsFile()
+                    .set(testUtilsExt.getAggregateDependencyVersions().flatMap(enabled -> enabled
+                            ? aggregatedDependencyVersions(project).flatMap(task -> task.getOutputDirectory()
+                                    .file(AggregateTestDependencyVersionsTask.VERSIONS_FILE_NAME))
+                            : testDependencyVersions.flatMap(TestDependencyVersionsTask::getOutputFile)));
+            arguments
+                    .getDependencyVersionsOverlayFile()
+                    .set(testUtilsExt.getAggregateDependencyVersions().flatMap(enabled -> enabled
+                            ? aggregatedDependencyVersions(project).flatMap(task -> task.getOutputDirectory()
+                                    .file(AggregateTestDependencyVersionsTask.overlayPath(project.getPath())))
+                            : project.getProviders().provider(() -> null)));
+            if (test instanceof GradleVersionTest versionTest) {
+                arguments.getGradleVersions().set(versionTest.getGradleVersion());
+                arguments.getAllGradleVersions().set(versionTest.getGradleVersion());
+            } else {
+                arguments
+                        .getGradleVersions()
+                        .set(activeGradleVersions(testUtilsExt).map(versions -> String.join(",", versions)));
+                arguments
+                        .getAllGradleVersions()
+                        .set(testUtilsExt.getGradleVersions().map(versions -> String.join(",", versions)));
+            }
+            arguments.getGradleVersionTier().set(testUtilsExt.getGradleVersionTier());
+            arguments.getIgnoreGradleDeprecations().set(testUtilsExt.getIgnoreGradleDeprecations());
+            arguments.getDeprecationPackages().set(testUtilsExt.getDeprecationPackages());
+            arguments.getOfflineMavenRepository().set(testUtilsExt.getOfflineMavenRepository());
+            arguments
+                    .getMavenRepositoryDirectory()
+                    .set(testMavenRepository.flatMap(TestMavenRepositoryTask::getRepositoryDirectory));
+            arguments.getPrepareGradleDistributions().set(testUtilsExt.getPrepareGradleDistributions());
+            arguments
+                    .getGradleDistributionsFile()
+                    .set(gradleDistributions.flatMap(PrepareGradleDistributionsTask::getOutputFile));
+            arguments.getTestKitBaseDirectory().set(testKitBaseDirectory);
+            arguments.getMaxTestKitDaemons().set(testUtilsExt.getMaxTestKitDaemonsPerFork());
+            arguments
+                    .getTestKitDaemonJvmArgs()
+                    .set(testUtilsExt.getMemoryAwareTestForks().flatMap(enabled -> enabled
+                            ? testUtilsExt.getTestKitDaemonHeapMegabytes().map(heap -> "-Xmx" + heap + "m")
+                            : project.getProviders().provider(() -> null)));
+            MemoryAwareForks.configure(
+                    test,
+                    testUtilsExt.getMemoryAwareTestForks(),
+                    testUtilsExt.getTestKitDaemonHeapMegabytes(),
+                    arguments
+                            .getGradleVersions()
+                            .map(versions -> versions.split(",").length)
+                            .zip(testUtilsExt.getMaxTestKitDaemonsPerFork(), Math::min));
+            test.finalizedBy(testUtilsExt
+                    .getMemoryAwareTestForks()
+                    .map(enabled -> enabled ? List.of(stopIdleTestKitDaemons) : List.of()));
+            arguments.getCacheTestResults().set(testUtilsExt.getCacheTestResults());
+            // outside of the build directory so that results survive clean
+            arguments
+                    .getTestResultCacheDirectory()
+                    .set(project.getLayout().getProjectDirectory().dir(".gradle/plugin-testing/test-results"));
+            Provider<RegularFile> buildTimingsFile = project.getLayout()
+                    .getBuildDirectory()
+                    .file("plugin-testing/build-timings/" + test.getName() + ".jsonl");
+            arguments.getRecordBuildTimings().set(testUtilsExt.getRecordBuildTimings());
+            arguments.getBuildTimingsFile().set(buildTimingsFile);
+            test.getOutputs().file(buildTimingsFile).withPropertyName("buildTimings").optional();
+            test.doFirst(new DeleteBuildTimingsAction(buildTimingsFile));
+            test.finalizedBy(testUtilsExt
+                    .getRecordBuildTimings()
+                    .map(enabled -> enabled ? List.of(testShardTimings) : List.of()));
+            arguments
+                    .getTestShardFile()
+                    .set(testUtilsExt.getTestShardCount().flatMap(count -> count > 1
+                            ? assignTestShard.flatMap(AssignTestShardTask::getOutputFile)
+                            : project.getProviders().provider(() -> null)));
+            test.getJvmArgumentProviders().add(arguments);
         });
+
+        registerGradleVersionTests(project, testUtilsExt);
+    }
+
+    /**
+     * Returns the task of the root project that aggregates the dependency versions of every project, registering it
+     * if this is the first project to enable {@code aggregateDependencyVersions}.
+     */
+    private static TaskProvider<AggregateTestDependencyVersionsTask> aggregatedDependencyVersions(Project project) {
+        Project rootProject = project.getRootProject();
+        if (rootProject.getTasks().getNames().contains(AggregateTestDependencyVersionsTask.NAME)) {
+            return rootProject.getTasks()
+                    .named(AggregateTestDependencyVersionsTask.NAME, AggregateTestDependencyVersionsTask.class);
+        }
+        return rootProject
+                .getTasks()
+                .register(AggregateTestDependencyVersionsTask.NAME, AggregateTestDependencyVersionsTask.class);
+    }
+
+    /**
+     * Register a test task per gradle version so that the versions can run in parallel and be cached independently.
+     * The tasks are created by a rule when something asks for them, which the {@code testAllGradleVersions} task does
+     * once the final list of versions is known.  Each task is configured like the {@code test} task, which is skipped
+     * and becomes an alias for the aggregate task so that {@code check} and {@code build} still run every version
+     * exactly once.
+     */
+    private static void registerGradleVersionTests(Project project, PluginTestingExtension testUtilsExt) {
+        Provider<Boolean> enabled = testUtilsExt.getShardTestsByGradleVersion();
+        TaskProvider<Test> testTask = project.getTasks().named(JavaPlugin.TEST_TASK_NAME, Test.class);
+
+        TaskProvider<Task> allVersions = project.getTasks().register(ALL_GRADLE_VERSIONS_TEST_TASK_NAME, task -> {
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Runs the test suite once for each configured gradle version.");
+            // task names are resolved through the rule below
+            task.dependsOn(enabled.zip(activeGradleVersions(testUtilsExt), (shard, versions) -> shard
+                    ? versions.stream()
+                            .map(PluginTestingPlugin::gradleVersionTestTaskName)
+                            .collect(Collectors.toList())
+                    : List.of()));
+        });
+        Provider<List<TaskProvider<Task>>> testDependency =
+                enabled.map(shard -> shard ? List.of(allVersions) : List.of());
+
+        String rule = "Pattern: testGradle<version>: Runs the test suite against a gradle version";
+        project.getTasks().addRule(rule, name -> {
+            if (!enabled.get()) {
+                return;
+            }
+            activeGradleVersions(testUtilsExt).get().stream()
+                    .filter(version -> gradleVersionTestTaskName(version).equals(name))
+                    .findFirst()
+                    .ifPresent(version -> registerGradleVersionTest(project, testTask, testDependency, version));
+        });
+
+        testTask.configure(test -> {
+            test.dependsOn(testDependency);
+            test.onlyIf("Runs in the per gradle version test tasks", _task -> !enabled.get());
+        });
+    }
+
+    private static void registerGradleVersionTest(
+            Project project, TaskProvider<Test> testTask, Object testDependency, String version) {
+        project.getTasks().register(gradleVersionTestTaskName(version), GradleVersionTest.class, task -> {
+            task.setGroup(LifecycleBasePlugin.VERIFICATION_GROUP);
+            task.setDescription("Runs the test suite against gradle " + version + ".");
+            task.getGradleVersion().set(version);
+            Test test = testTask.get();
+            task.setTestClassesDirs(test.getTestClassesDirs());
+            task.setClasspath(test.getClasspath());
+            copyTestSettings(test, task);
+            // don't depend on the aggregate task the test task now depends on
+            test.getDependsOn().stream()
+                    .filter(dependency -> dependency != testDependency)
+                    .forEach(task::dependsOn);
+        });
+    }
+
+    /**
+     * Copies the commonly customized settings of the {@code test} task, including its filter and any
+     * {@code --tests} given on the command line, which are applied before the per-version tasks are created.
+     * Anything configured through {@code tasks.withType(Test)} is already applied to the per-version tasks.
+     */
+    private static void copyTestSettings(Test from, Test to) {
+        if (from.getOptions() instanceof JUnitPlatformOptions fromOptions) {
+            to.useJUnitPlatform(toOptions -> {
+                toOptions.getIncludeEngines().addAll(fromOptions.getIncludeEngines());
+                toOptions.getExcludeEngines().addAll(fromOptions.getExcludeEngines());
+                toOptions.getIncludeTags().addAll(fromOptions.getIncludeTags());
+                toOptions.getExcludeTags().addAll(fromOptions.getExcludeTags());
+            });
+        }
+        to.getFilter().setIncludePatterns(from.getFilter().getIncludePatterns().toArray(new String[0]));
+        to.getFilter().setExcludePatterns(from.getFilter().getExcludePatterns().toArray(new String[0]));
+        to.getFilter().setFailOnNoMatchingTests(from.getFilter().isFailOnNoMatchingTests());
+        if (from.getFilter() instanceof DefaultTestFilter fromFilter
+                && to.getFilter() instanceof DefaultTestFilter toFilter) {
+            // there is no public API to read the patterns of --tests
+            toFilter.setCommandLineIncludePatterns(fromFilter.getCommandLineIncludePatterns());
+        }
+        to.systemProperties(from.getSystemProperties());
+        to.environment(from.getEnvironment());
+        to.jvmArgs(from.getJvmArgs());
+        to.setMaxHeapSize(from.getMaxHeapSize());
+        to.setMaxParallelForks(from.getMaxParallelForks());
+    }
+
+    /**
+     * Returns the gradle versions of the selected {@link GradleVersionTier}.
+     */
+    static Provider<Set<String>> activeGradleVersions(PluginTestingExtension testUtilsExt) {
+        return testUtilsExt.getGradleVersionTier().flatMap(tier -> switch (tier) {
+            case EDGE -> testUtilsExt.getEdgeGradleVersions();
+            case FULL -> testUtilsExt.getGradleVersions();
+        });
+    }
+
+    /**
+     * Returns the name of the test task for the given gradle version, e.g. {@code testGradle7_6_4}.
+     */
+    static String gradleVersionTestTaskName(String gradleVersion) {
+        return "testGradle" + gradleVersion.replaceAll("[^A-Za-z0-9]", "_");
     }
 
     /**
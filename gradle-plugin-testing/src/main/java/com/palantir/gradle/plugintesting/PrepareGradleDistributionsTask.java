@@ -0,0 +1,200 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * Downloads and unpacks each gradle version used in tests exactly once into a directory shared by all builds on the
+ * machine, so that test forks don't race each other to download the same distribution.  Writes a file mapping each
+ * version to its installation directory that {@code GradleTestVersions.getGradleInstallation} reads.
+ */
+@DisableCachingByDefault(because = "The distributions live outside of the build directory")
+public abstract class PrepareGradleDistributionsTask extends DefaultTask {
+    static final String DEFAULT_DISTRIBUTION_BASE_URL = "https://services.gradle.org/distributions";
+
+    /**
+     * Serializes provisioning within this JVM, since file locks are held on behalf of the whole process.
+     */
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    public PrepareGradleDistributionsTask() {
+        getDistributionBaseUrl().convention(DEFAULT_DISTRIBUTION_BASE_URL);
+        getDistributionsDirectory()
+                .convention(getProject()
+                        .getLayout()
+                        .dir(getProject().provider(() -> new File(
+                                getProject().getGradle().getGradleUserHomeDir(),
+                                "caches/plugin-testing/distributions"))));
+        getOutputFile()
+                .convention(getProject()
+                        .getLayout()
+                        .getBuildDirectory()
+                        .file("plugin-testing/gradle-distributions.properties"));
+        getOutputs().upToDateWhen(_task -> getGradleVersions().get().stream()
+                .allMatch(version -> Files.exists(markerFile(version))));
+    }
+
+    @Input
+    public abstract SetProperty<String> getGradleVersions();
+
+    /**
+     * Location distributions are downloaded from as {@code <base url>/gradle-<version>-bin.zip}.  Can be a
+     * {@code file:} URL of a local mirror.
+     */
+    @Input
+    public abstract Property<String> getDistributionBaseUrl();
+
+    @Internal
+    public abstract DirectoryProperty getDistributionsDirectory();
+
+    @OutputFile
+    public abstract RegularFileProperty getOutputFile();
+
+    @TaskAction
+    public final void doAction() {
+        List<String> lines = getGradleVersions().get().stream()
+                .sorted()
+                .map(version -> version + "=" + provision(version).toAbsolutePath())
+                .collect(Collectors.toList());
+        try {
+            Files.write(getOutputFile().get().getAsFile().toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the installation directory of the given version, downloading and unpacking it while holding a lock if
+     * no other build has done so yet.
+     */
+    private Path provision(String version) {
+        Path installDir = installDir(version);
+        Path marker = markerFile(version);
+        if (Files.exists(marker)) {
+            return installDir;
+        }
+
+        Path lockFile = installDir.resolveSibling("gradle-" + version + ".lock");
+        synchronized (JVM_LOCKS.computeIfAbsent(lockFile, _path -> new Object())) {
+            try {
+                Files.createDirectories(lockFile.getParent());
+                try (FileChannel channel =
+                                FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                        FileLock _lock = channel.lock()) {
+                    // another build may have finished while we were waiting for the lock
+                    if (!Files.exists(marker)) {
+                        download(version, installDir);
+                        Files.createFile(marker);
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to provision gradle " + version, e);
+            }
+        }
+        return installDir;
+    }
+
+    private void download(String version, Path installDir) throws IOException {
+        URI uri = URI.create(getDistributionBaseUrl().get() + "/gradle-" + version + "-bin.zip");
+        getLogger().lifecycle("Downloading gradle {} from {}", version, uri);
+
+        Path tempDir = installDir.resolveSibling("tmp-" + UUID.randomUUID());
+        try {
+            Files.createDirectories(tempDir);
+            try (InputStream in = uri.toURL().openStream();
+                    ZipInputStream zip = new ZipInputStream(in)) {
+                unzip(zip, tempDir);
+            }
+            // the zip contains a single gradle-<version> directory
+            Path unpacked = tempDir.resolve("gradle-" + version);
+            if (!Files.isDirectory(unpacked)) {
+                throw new IOException("Distribution " + uri + " does not contain gradle-" + version);
+            }
+            deleteRecursively(installDir);
+            Files.move(unpacked, installDir, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            deleteRecursively(tempDir);
+        }
+    }
+
+    private static void unzip(ZipInputStream zip, Path target) throws IOException {
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            Path path = target.resolve(entry.getName()).normalize();
+            if (!path.startsWith(target)) {
+                throw new IOException("Zip entry outside of target directory: " + entry.getName());
+            }
+            if (entry.isDirectory()) {
+                Files.createDirectories(path);
+            } else {
+                Files.createDirectories(path.getParent());
+                Files.copy(zip, path, StandardCopyOption.REPLACE_EXISTING);
+                if (path.getParent().getFileName().toString().equals("bin")) {
+                    path.toFile().setExecutable(true);
+                }
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private Path installDir(String version) {
+        return getDistributionsDirectory().get().getAsFile().toPath().resolve("gradle-" + version);
+    }
+
+    private Path markerFile(String version) {
+        return installDir(version).resolveSibling("gradle-" + version + ".ok");
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * Stops the TestKit daemons that test forks which have exited left behind, so that they stop holding memory once the
+ * test task finishes rather than when they time out.  Daemons of forks that are still running are left alone.
+ */
+@DisableCachingByDefault(because = "Stops processes")
+public abstract class StopIdleTestKitDaemonsTask extends DefaultTask {
+
+    @Internal
+    public abstract DirectoryProperty getTestKitBaseDirectory();
+
+    @TaskAction
+    public final void doAction() {
+        TestKitRunners.stopIdleDaemons(getTestKitBaseDirectory().get().getAsFile().toPath());
+    }
+}
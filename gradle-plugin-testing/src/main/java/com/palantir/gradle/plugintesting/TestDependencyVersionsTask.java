@@ -19,14 +19,27 @@ package com.palantir.gradle.plugintesting;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+import org.gradle.api.artifacts.result.UnresolvedDependencyResult;
 import org.gradle.api.file.RegularFileProperty;
 import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.CacheableTask;
-import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.OutputFile;
 import org.gradle.api.tasks.TaskAction;
 
@@ -39,17 +52,47 @@ public abstract class TestDependencyVersionsTask extends DefaultTask {
                         .getLayout()
                         .getBuildDirectory()
                         .file("plugin-testing/dependency-versions.properties"));
+        getIncludeTransitiveDependencies().convention(false);
     }
 
-    @Classpath
-    abstract Property<Configuration> getClasspathConfiguration();
+    /**
+     * Root of the resolved test runtime classpath.  Resolved lazily, and only its coordinates are used as an input so
+     * that the jars on the classpath are never fingerprinted.
+     */
+    @Internal
+    abstract Property<ResolvedComponentResult> getRootComponent();
+
+    /**
+     * Whether to also write the transitive dependencies of the test runtime classpath.
+     */
+    @Input
+    public abstract Property<Boolean> getIncludeTransitiveDependencies();
+
+    /**
+     * Fingerprint of the declared test runtime classpath.  When set along with {@link #getDependencyVersionsService()},
+     * projects with the same fingerprint share one resolution.
+     */
+    @Internal
+    abstract Property<String> getClasspathFingerprint();
+
+    @Internal
+    abstract Property<DependencyVersionsService> getDependencyVersionsService();
+
+    @Input
+    public final Provider<List<String>> getDependencyCoordinates() {
+        return getIncludeTransitiveDependencies().flatMap(includeTransitive -> getClasspathFingerprint()
+                .zip(getDependencyVersionsService(), (fingerprint, service) -> service.dependencyCoordinates(
+                        fingerprint + ":" + includeTransitive,
+                        () -> getDependencyStrings(getRootComponent().get(), includeTransitive)))
+                .orElse(getRootComponent().map(root -> getDependencyStrings(root, includeTransitive))));
+    }
 
     @OutputFile
     public abstract RegularFileProperty getOutputFile();
 
     @TaskAction
     public final void doAction() {
-        List<String> depSet = getDependencyStrings(getClasspathConfiguration().get());
+        List<String> depSet = getDependencyCoordinates().get();
         String depsString = String.join("\n", depSet);
         try {
             Files.write(getOutputFile().get().getAsFile().toPath(), depsString.getBytes(StandardCharsets.UTF_8));
@@ -59,13 +102,58 @@ public abstract class TestDependencyVersionsTask extends DefaultTask {
     }
 
     /**
-     * Returns a list of all dependencies, sorted and deduplicated.
+     * Returns a list of all first level dependencies, sorted and deduplicated, optionally followed by all transitive
+     * dependencies in a separate section.
      */
-    private static List<String> getDependencyStrings(Configuration config) {
-        return config.getResolvedConfiguration().getFirstLevelModuleDependencies().stream()
-                .map(dep -> dep.getModuleGroup() + ":" + dep.getModuleName() + "=" + dep.getModuleVersion())
-                .sorted()
-                .distinct()
+    static List<String> getDependencyStrings(ResolvedComponentResult root, boolean includeTransitive) {
+        Set<String> direct = dependencyStrings(directDependencies(root));
+        if (!includeTransitive) {
+            return List.copyOf(direct);
+        }
+
+        Set<ResolvedComponentResult> visited = new HashSet<>();
+        Deque<ResolvedComponentResult> queue = new ArrayDeque<>(directDependencies(root));
+        while (!queue.isEmpty()) {
+            ResolvedComponentResult component = queue.pop();
+            if (visited.add(component)) {
+                queue.addAll(directDependencies(component));
+            }
+        }
+        Set<String> transitive = dependencyStrings(visited);
+        transitive.removeAll(direct);
+        dependencyString(root).ifPresent(transitive::remove);
+
+        List<String> result = new ArrayList<>(direct);
+        result.add(DependencyVersionIndex.TRANSITIVE_SECTION);
+        result.addAll(transitive);
+        return result;
+    }
+
+    private static List<ResolvedComponentResult> directDependencies(ResolvedComponentResult component) {
+        return component.getDependencies().stream()
+                // constraints, e.g. from versions.lock, are not dependencies
+                .filter(dependency -> !dependency.isConstraint())
+                .map(TestDependencyVersionsTask::selected)
                 .collect(Collectors.toList());
     }
+
+    private static Set<String> dependencyStrings(Collection<ResolvedComponentResult> components) {
+        return components.stream()
+                .map(TestDependencyVersionsTask::dependencyString)
+                .flatMap(Optional::stream)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static Optional<String> dependencyString(ResolvedComponentResult component) {
+        return Optional.ofNullable(component.getModuleVersion())
+                .map(dep -> dep.getGroup() + ":" + dep.getName() + "=" + dep.getVersion());
+    }
+
+    private static ResolvedComponentResult selected(DependencyResult dependency) {
+        if (dependency instanceof UnresolvedDependencyResult unresolved) {
+            throw new RuntimeException(
+                    "Could not resolve " + unresolved.getAttempted().getDisplayName(), unresolved.getFailure());
+        }
+        return ((ResolvedDependencyResult) dependency).getSelected();
+    }
 }
@@ -0,0 +1,294 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import javax.inject.Inject;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.result.ResolvedArtifactResult;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileSystemOperations;
+import org.gradle.api.provider.SetProperty;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.OutputDirectory;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.DisableCachingByDefault;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes the resolved artifacts of the test runtime classpath, along with their POMs, parent POMs, imported BOMs and
+ * gradle module metadata, into a file based maven repository so that builds generated by tests can resolve them
+ * without network access.  Files are hardlinked from the gradle cache where the filesystem allows it.
+ */
+@DisableCachingByDefault(because = "Hardlinking from the dependency cache is cheaper than packing into the cache")
+public abstract class TestMavenRepositoryTask extends DefaultTask {
+
+    public TestMavenRepositoryTask() {
+        getRepositoryDirectory()
+                .convention(getProject().getLayout().getBuildDirectory().dir("plugin-testing/maven-repository"));
+    }
+
+    @Internal
+    abstract SetProperty<ResolvedArtifactResult> getResolvedArtifacts();
+
+    @InputFiles
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    abstract ConfigurableFileCollection getArtifactFiles();
+
+    @OutputDirectory
+    public abstract DirectoryProperty getRepositoryDirectory();
+
+    @Inject
+    protected abstract FileSystemOperations getFileSystemOperations();
+
+    @TaskAction
+    public final void doAction() {
+        Path repository = getRepositoryDirectory().get().getAsFile().toPath();
+        getFileSystemOperations().delete(spec -> spec.delete(repository.toFile()));
+
+        Set<Path> roots = new HashSet<>();
+        Set<Coordinates> poms = new HashSet<>();
+        for (ResolvedArtifactResult artifact : getResolvedArtifacts().get()) {
+            if (!(artifact.getId().getComponentIdentifier() instanceof ModuleComponentIdentifier id)) {
+                // project dependencies and file dependencies are not published anywhere
+                continue;
+            }
+            Coordinates coordinates = new Coordinates(id.getGroup(), id.getModule(), id.getVersion());
+            Path file = artifact.getFile().toPath();
+            link(file, coordinates.directoryIn(repository).resolve(file.getFileName()));
+            repositoryRoot(file, coordinates).ifPresent(roots::add);
+            poms.add(coordinates);
+        }
+
+        Set<Coordinates> visited = new HashSet<>();
+        Deque<Coordinates> queue = new ArrayDeque<>(poms);
+        while (!queue.isEmpty()) {
+            Coordinates coordinates = queue.pop();
+            if (!visited.add(coordinates)) {
+                continue;
+            }
+            Optional<Path> pom = findMetadata(roots, coordinates, coordinates.fileName("pom"));
+            pom.ifPresent(path -> {
+                link(path, coordinates.directoryIn(repository).resolve(path.getFileName()));
+                queue.addAll(referencedPoms(path));
+            });
+            findMetadata(roots, coordinates, coordinates.fileName("module"))
+                    .ifPresent(path -> link(path, coordinates.directoryIn(repository).resolve(path.getFileName())));
+        }
+    }
+
+    /**
+     * Returns the root of the repository the artifact was resolved from.  Both the gradle cache layout
+     * ({@code files-2.1/group/module/version/hash/file}) and the maven layout
+     * ({@code repository/gr/oup/module/version/file}) are supported.
+     */
+    private static Optional<Path> repositoryRoot(Path artifact, Coordinates coordinates) {
+        Path versionDir = artifact.getParent() == null ? null : artifact.getParent().getParent();
+        if (nameEquals(versionDir, coordinates.version())
+                && nameEquals(versionDir.getParent(), coordinates.module())
+                && nameEquals(versionDir.getParent().getParent(), coordinates.group())) {
+            return Optional.ofNullable(versionDir.getParent().getParent().getParent());
+        }
+        versionDir = artifact.getParent();
+        if (nameEquals(versionDir, coordinates.version()) && nameEquals(versionDir.getParent(), coordinates.module())) {
+            Path root = versionDir.getParent();
+            for (int i = 0; i < coordinates.group().split("\\.").length && root != null; i++) {
+                root = root.getParent();
+            }
+            return Optional.ofNullable(root);
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Path> findMetadata(Set<Path> roots, Coordinates coordinates, String fileName) {
+        for (Path root : roots) {
+            Path mavenLayout = coordinates.directoryIn(root).resolve(fileName);
+            if (Files.isRegularFile(mavenLayout)) {
+                return Optional.of(mavenLayout);
+            }
+            Path cacheVersionDir =
+                    root.resolve(coordinates.group()).resolve(coordinates.module()).resolve(coordinates.version());
+            if (Files.isDirectory(cacheVersionDir)) {
+                try (DirectoryStream<Path> hashDirs = Files.newDirectoryStream(cacheVersionDir)) {
+                    for (Path hashDir : hashDirs) {
+                        Path candidate = hashDir.resolve(fileName);
+                        if (Files.isRegularFile(candidate)) {
+                            return Optional.of(candidate);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the parent POM and any imported BOMs that are needed to read the given POM.  Versions that are defined
+     * by properties of a parent are not followed.
+     */
+    private static List<Coordinates> referencedPoms(Path pom) {
+        Document document = parse(pom);
+        Element project = document.getDocumentElement();
+        Map<String, String> properties = new HashMap<>();
+        child(project, "properties").ifPresent(props -> {
+            NodeList children = props.getChildNodes();
+            for (int i = 0; i < children.getLength(); i++) {
+                if (children.item(i) instanceof Element property) {
+                    properties.put(property.getTagName(), property.getTextContent().trim());
+                }
+            }
+        });
+
+        List<Coordinates> result = new ArrayList<>();
+        child(project, "parent").flatMap(parent -> coordinates(parent, properties)).ifPresent(parent -> {
+            result.add(parent);
+            properties.put("project.parent.version", parent.version());
+            properties.putIfAbsent("project.groupId", parent.group());
+            properties.putIfAbsent("project.version", parent.version());
+        });
+        child(project, "groupId").ifPresent(group -> properties.put("project.groupId", group.getTextContent()));
+        child(project, "version").ifPresent(version -> properties.put("project.version", version.getTextContent()));
+
+        child(project, "dependencyManagement")
+                .flatMap(management -> child(management, "dependencies"))
+                .ifPresent(dependencies -> {
+                    NodeList children = dependencies.getElementsByTagName("dependency");
+                    for (int i = 0; i < children.getLength(); i++) {
+                        Element dependency = (Element) children.item(i);
+                        boolean isImport = child(dependency, "scope")
+                                .map(scope -> scope.getTextContent().trim().equals("import"))
+                                .orElse(false);
+                        if (isImport) {
+                            coordinates(dependency, properties).ifPresent(result::add);
+                        }
+                    }
+                });
+        return result;
+    }
+
+    private static Optional<Coordinates> coordinates(Element element, Map<String, String> properties) {
+        Optional<String> group = child(element, "groupId").map(node -> interpolate(node.getTextContent(), properties));
+        Optional<String> module =
+                child(element, "artifactId").map(node -> interpolate(node.getTextContent(), properties));
+        Optional<String> version =
+                child(element, "version").map(node -> interpolate(node.getTextContent(), properties));
+        if (group.isEmpty() || module.isEmpty() || version.isEmpty()) {
+            return Optional.empty();
+        }
+        Coordinates coordinates = new Coordinates(group.get(), module.get(), version.get());
+        if (coordinates.toString().contains("${")) {
+            return Optional.empty();
+        }
+        return Optional.of(coordinates);
+    }
+
+    private static String interpolate(String value, Map<String, String> properties) {
+        String result = value.trim();
+        for (Map.Entry<String, String> property : properties.entrySet()) {
+            result = result.replace("${" + property.getKey() + "}", property.getValue());
+        }
+        return result;
+    }
+
+    private static Optional<Element> child(Element parent, String tagName) {
+        NodeList children = parent.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node node = children.item(i);
+            if (node instanceof Element element && element.getTagName().equals(tagName)) {
+                return Optional.of(element);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Document parse(Path pom) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            return builder.parse(pom.toFile());
+        } catch (ParserConfigurationException | SAXException | IOException e) {
+            throw new RuntimeException("Failed to parse " + pom, e);
+        }
+    }
+
+    /**
+     * Hardlink the file into the repository, falling back to a copy when the cache is on a different filesystem.
+     */
+    private static void link(Path source, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, source);
+            } catch (FileAlreadyExistsException e) {
+                // same file reached through more than one artifact
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(source, target);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean nameEquals(Path path, String name) {
+        return path != null && path.getFileName() != null && path.getFileName().toString().equals(name);
+    }
+
+    private record Coordinates(String group, String module, String version) {
+        Path directoryIn(Path root) {
+            return root.resolve(group.replace('.', '/')).resolve(module).resolve(version);
+        }
+
+        String fileName(String extension) {
+            return module + "-" + version + "." + extension;
+        }
+
+        @Override
+        public String toString() {
+            return group + ":" + module + ":" + version;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+
+/**
+ * Sums up the builds recorded by {@code BuildTimings} into the time each spec spent running builds, per gradle version
+ * for tests that run against a gradle version parameter.  The {@link AssignTestShardTask} of later runs reads these
+ * files to balance specs across CI nodes.
+ */
+@CacheableTask
+public abstract class TestShardTimingsTask extends DefaultTask {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    public TestShardTimingsTask() {
+        getTimingsFile()
+                .convention(getProject()
+                        .getLayout()
+                        .getBuildDirectory()
+                        .file("plugin-testing/test-shard-timings.json"));
+    }
+
+    /**
+     * JSON lines files written by test tasks.
+     */
+    @InputFiles
+    @SkipWhenEmpty
+    @PathSensitive(PathSensitivity.NAME_ONLY)
+    public abstract ConfigurableFileCollection getBuildTimingsFiles();
+
+    @OutputFile
+    public abstract RegularFileProperty getTimingsFile();
+
+    @TaskAction
+    public final void doAction() {
+        Map<String, Map<String, Double>> timings = new TreeMap<>();
+        for (File file : getBuildTimingsFiles().getFiles()) {
+            for (JsonNode invocation : read(file)) {
+                String spec = TestShard.specName(invocation.path("spec").asText());
+                String gradleVersion = invocation.path("gradleVersionParameter").asText(TestShard.WHOLE_SPEC);
+                timings.computeIfAbsent(spec, _spec -> new TreeMap<>())
+                        .merge(gradleVersion, invocation.path("totalMillis").asDouble(0), Double::sum);
+            }
+        }
+        try {
+            MAPPER.writeValue(getTimingsFile().get().getAsFile(), timings);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<JsonNode> read(File file) {
+        try {
+            List<JsonNode> result = new ArrayList<>();
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    result.add(MAPPER.readTree(line));
+                }
+            }
+            return result;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read build timings from " + file, e);
+        }
+    }
+}
@@ -21,6 +21,12 @@ import nebula.test.functional.ExecutionResult
 
 class AbstractTestingPluginSpec extends IntegrationSpec{
 
+    private VersionOverrides.Scope versionOverrides
+
+    def cleanup() {
+        versionOverrides?.close()
+    }
+
     @Override
     ExecutionResult runTasks(String... tasks) {
         def projectVersion = Optional.ofNullable(System.getProperty('projectVersion')).orElseThrow()
@@ -38,6 +44,6 @@ class AbstractTestingPluginSpec extends IntegrationSpec{
             com.palantir.gradle.consistentversions:gradle-consistent-versions=2.31.0
             com.palantir.baseline:gradle-baseline-java=6.4.0
         """.stripIndent(true)
-        System.setProperty(TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY, versionsFile.absolutePath);
+        versionOverrides = VersionOverrides.create().withDependencyVersionsFile(versionsFile).apply()
     }
 }
\ No newline at end of file
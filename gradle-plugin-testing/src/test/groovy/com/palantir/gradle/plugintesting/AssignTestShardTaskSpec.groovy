@@ -0,0 +1,78 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting
+
+import groovy.json.JsonSlurper
+
+class AssignTestShardTaskSpec extends AbstractTestingPluginSpec {
+
+    def 'assigns specs and gradle versions by their durations in earlier runs'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'java'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.8']
+                testShardTimingsFiles.from('ci-timings')
+            }
+        """.stripIndent(true)
+
+        ['SlowSpec', 'FastSpec', 'NewSpec'].each { name ->
+            file("src/test/java/com/example/${name}.java") << "package com.example; public class ${name} {}"
+        }
+        file('src/test/java/com/example/AbstractSpec.java') <<
+                'package com.example; public abstract class AbstractSpec {}'
+
+        file('ci-timings/node-0.json') << '{"com.example.SlowSpec": {"7.6.4": 3000.0, "8.8": 1000.0}}'
+        file('ci-timings/node-1.json') << '{"com.example.FastSpec": {"*": 1500.0}}'
+
+        when:
+        runTasksSuccessfully(
+                'assignTestShard', '-PpluginTestingTestShardIndex=1', '-PpluginTestingTestShardCount=2')
+
+        then:
+        def shard = new JsonSlurper().parse(file('build/plugin-testing/test-shard.json'))
+        // the new spec goes to the node with less work, and the abstract one is not a spec
+        shard.specs == ['com.example.FastSpec', 'com.example.NewSpec']
+        shard.gradleVersions == ['com.example.SlowSpec': ['8.8']]
+        shard.otherSpecs == []
+    }
+
+    def 'sums up recorded builds into timings'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'java'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+        """.stripIndent(true)
+
+        file('build/plugin-testing/build-timings/test.jsonl') << [
+                '{"spec":"FastSpec","test":"a","gradleVersion":"8.8","totalMillis":100.0}',
+                '{"spec":"SlowSpec","test":"b","gradleVersion":"7.6.4","gradleVersionParameter":"7.6.4","totalMillis":3000.0}',
+                '{"spec":"SlowSpec","test":"c","gradleVersion":"7.6.4","gradleVersionParameter":"7.6.4","totalMillis":500.0}',
+        ].join('\n')
+
+        when:
+        runTasksSuccessfully('writeTestShardTimings')
+
+        then:
+        def timings = new JsonSlurper().parse(file('build/plugin-testing/test-shard-timings.json'))
+        timings == [FastSpec: ['*': 100.0], SlowSpec: ['7.6.4': 3500.0]]
+    }
+}
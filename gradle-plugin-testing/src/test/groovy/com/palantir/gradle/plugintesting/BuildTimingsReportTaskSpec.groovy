@@ -0,0 +1,65 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting
+
+import groovy.json.JsonSlurper
+
+class BuildTimingsReportTaskSpec extends AbstractTestingPluginSpec {
+
+    def 'ranks the slowest specs and gradle versions'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+        """.stripIndent(true)
+
+        file('build/plugin-testing/build-timings/test.jsonl') << [
+                '{"spec":"FastSpec","test":"a","gradleVersion":"8.8","totalMillis":100.0,"startupMillis":10.0,"daemonReused":true}',
+                '{"spec":"SlowSpec","test":"b","gradleVersion":"7.6.4","totalMillis":3000.0,"startupMillis":2000.0,"daemonReused":false}',
+                '{"spec":"SlowSpec","test":"c","gradleVersion":"8.8","totalMillis":500.0,"startupMillis":20.0,"daemonReused":true}',
+        ].join('\n')
+
+        when:
+        runTasksSuccessfully('buildTimingsReport')
+
+        then:
+        def report = new JsonSlurper().parse(file('build/reports/plugin-testing/build-timings.json'))
+        report.invocations == 3
+        report.daemonsReused == 2
+        report.phases.startupMillis == 2030.0
+        report.slowestSpecs*.name == ['SlowSpec', 'FastSpec']
+        report.slowestSpecs[0].totalMillis == 3500.0
+        report.slowestGradleVersions*.name == ['7.6.4', '8.8']
+        report.slowestInvocations*.test == ['b', 'c', 'a']
+    }
+
+    def 'skipped without recorded builds'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+        """.stripIndent(true)
+
+        when:
+        def result = runTasksSuccessfully('buildTimingsReport')
+
+        then:
+        result.wasSkipped('buildTimingsReport')
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting
+
+class CheckGradleApiCompatibilityTaskSpec extends AbstractTestingPluginSpec {
+
+    def setup() {
+        //language=gradle
+        buildFile << """
+            apply plugin: 'java'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            dependencies {
+                implementation gradleApi()
+            }
+        """.stripIndent(true)
+
+        //language=java
+        file('src/main/java/com/example/ExamplePlugin.java') << '''
+            package com.example;
+
+            import org.gradle.api.Plugin;
+            import org.gradle.api.Project;
+
+            public class ExamplePlugin implements Plugin<Project> {
+                @Override
+                public void apply(Project project) {
+                    project.getLogger().lifecycle(project.getName());
+                }
+            }
+        '''.stripIndent(true)
+    }
+
+    def 'passes against the running gradle version'() {
+        given:
+        //language=gradle
+        buildFile << """
+            def distributions = file('build/test-distributions.properties')
+            tasks.named('checkGradleApiCompatibility') {
+                gradleVersions = [gradle.gradleVersion]
+                gradleDistributionsFile = distributions
+                indexDirectory = file('build/gradle-api-index')
+                setDependsOn([])
+                doFirst {
+                    distributions.text = "\${gradle.gradleVersion}=\${gradle.gradleHomeDir}"
+                }
+            }
+        """.stripIndent(true)
+
+        when:
+        runTasksSuccessfully('checkGradleApiCompatibility')
+
+        then:
+        file('build/reports/plugin-testing/gradle-api-compatibility.txt').text.contains('No incompatibilities found')
+        file("build/gradle-api-index").list().length == 1
+    }
+
+    def 'reports missing classes and changed signatures'() {
+        given:
+        //language=gradle
+        buildFile << """
+            def distributions = file('build/test-distributions.properties')
+            tasks.named('checkGradleApiCompatibility') {
+                gradleVersions = ['0.1']
+                gradleDistributionsFile = distributions
+                indexDirectory = file('gradle-api-index')
+                setDependsOn([])
+                doFirst {
+                    distributions.text = '0.1=/does/not/exist'
+                }
+            }
+        """.stripIndent(true)
+
+        // a cached index, so no distribution is needed
+        file('gradle-api-index/0.1.txt') << [
+                'gradle-api-index-v1',
+                'C org/gradle/api/Project - -',
+                'M getLogger()Lorg/gradle/api/logging/Logger;',
+                'M getName(I)Ljava/lang/String;',
+                'C org/gradle/api/logging/Logger - -',
+                'M lifecycle(Ljava/lang/String;)V',
+        ].join('\n')
+
+        when:
+        def result = runTasksWithFailure('checkGradleApiCompatibility')
+
+        then:
+        def report = file('build/reports/plugin-testing/gradle-api-compatibility.txt').text
+        report.contains('Missing class org/gradle/api/Plugin (used by com/example/ExamplePlugin)')
+        report.contains('Changed signature of org/gradle/api/Project.getName()Ljava/lang/String;, found (I)Ljava/lang/String;')
+        !report.contains('lifecycle')
+        result.standardError.contains('missing from gradle 0.1')
+    }
+}
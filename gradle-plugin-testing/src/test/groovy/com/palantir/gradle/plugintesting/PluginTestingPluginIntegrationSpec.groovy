@@ -231,6 +231,199 @@ class PluginTestingPluginIntegrationSpec extends AbstractTestingPluginSpec {
         result.standardOutput.contains('test with version: #version > test with version: 8.10.1')
     }
 
+    def 'select the edge tier of gradle versions'() {
+        given:
+        applyTestUtilsPlugin()
+        buildFile << """
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.5', '8.10.1']
+                edgeGradleVersions = ['7.6.4', '8.10.1']
+            }
+        """.stripIndent(true)
+
+        specUnderTest.text = specUnderTest.text
+            .replace('//INSERT IMPORTS HERE', '''
+                import com.palantir.gradle.plugintesting.GradleTestVersions
+                import com.palantir.gradle.plugintesting.GradleVersionTier
+            '''.stripIndent(true))
+
+            //language=groovy
+            .replace('//INSERT MORE TESTS HERE', '''
+               def 'tier version: #version'() {
+                    expect:
+                    GradleTestVersions.gradleVersionTier == GradleVersionTier.EDGE
+
+                    where:
+                    version << GradleTestVersions.gradleVersionsForTests
+                }
+
+               def 'full coverage version: #version'() {
+                    expect:
+                    version != null
+
+                    where:
+                    version << GradleTestVersions.allGradleVersionsForTests
+                }
+            '''.stripIndent())
+
+        when:
+        def result = runTasks('test', '-P' + PluginTestingPlugin.GRADLE_VERSION_TIER_PROPERTY_NAME + '=edge')
+
+        then:
+        result.success
+        result.standardOutput.contains('tier version: #version > tier version: 7.6.4')
+        result.standardOutput.contains('tier version: #version > tier version: 8.10.1')
+        !result.standardOutput.contains('tier version: #version > tier version: 8.5')
+        result.standardOutput.contains('full coverage version: #version > full coverage version: 8.5')
+    }
+
+    def 'shard tests by gradle version'() {
+        given:
+        applyTestUtilsPlugin()
+        buildFile << """
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.10.1']
+                shardTestsByGradleVersion = true
+            }
+        """.stripIndent(true)
+
+        specUnderTest.text = specUnderTest.text
+            .replace('//INSERT IMPORTS HERE', '''
+                import com.palantir.gradle.plugintesting.GradleTestVersions
+            '''.stripIndent(true))
+
+            //language=groovy
+            .replace('//INSERT MORE TESTS HERE', '''
+               def 'only sees a single version'() {
+                    expect:
+                    GradleTestVersions.gradleVersionsForTests.size() == 1
+                }
+            '''.stripIndent())
+
+        when:
+        def result = runTasks('test')
+
+        then:
+        result.success
+        result.wasExecuted('testGradle7_6_4')
+        result.wasExecuted('testGradle8_10_1')
+        result.wasExecuted(PluginTestingPlugin.ALL_GRADLE_VERSIONS_TEST_TASK_NAME)
+        result.wasSkipped('test')
+        file('build/test-results/testGradle7_6_4').exists()
+        file('build/test-results/testGradle8_10_1').exists()
+    }
+
+    def 'gradle version shards run the tests selected on the test task'() {
+        given:
+        applyTestUtilsPlugin()
+        buildFile << """
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.10.1']
+                shardTestsByGradleVersion = true
+            }
+        """.stripIndent(true)
+
+        //language=groovy
+        file('src/test/groovy/com/testing/FailingSpec.groovy') << '''
+            package com.testing
+
+            import spock.lang.Specification
+
+            class FailingSpec extends Specification {
+                def 'fails'() {
+                    expect:
+                    false
+                }
+            }
+        '''.stripIndent(true)
+
+        when:
+        def result = runTasks('test', '--tests', 'com.testing.HelloWorldSpec')
+
+        then:
+        result.success
+        result.wasExecuted('testGradle7_6_4')
+        result.wasExecuted('testGradle8_10_1')
+    }
+
+    def 'size forks by memory and stop idle daemons'() {
+        given:
+        applyTestUtilsPlugin()
+        buildFile << """
+            gradleTestUtils {
+                memoryAwareTestForks = true
+                testKitDaemonHeapMegabytes = 384
+            }
+        """.stripIndent(true)
+
+        specUnderTest.text = specUnderTest.text
+            //language=groovy
+            .replace('//INSERT MORE TESTS HERE', '''
+               def 'daemons get a heap budget'() {
+                    expect:
+                    System.getProperty('TEST_KIT_DAEMON_JVM_ARGS') == '-Xmx384m'
+                }
+            '''.stripIndent())
+
+        when:
+        def result = runTasks('test')
+
+        then:
+        result.success
+        result.wasExecuted('stopIdleTestKitDaemons')
+    }
+
+    def 'test results are loaded from the build cache'() {
+        given:
+        applyTestUtilsPlugin()
+        runTasksSuccessfully('test', '--build-cache')
+
+        when:
+        def result = runTasksSuccessfully('clean', 'test', '--build-cache')
+
+        then:
+        result.standardOutput.contains('> Task :test FROM-CACHE')
+    }
+
+    def 'skip iterations that passed in an earlier run'() {
+        given:
+        applyTestUtilsPlugin()
+        buildFile << """
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.10.1']
+                cacheTestResults = true
+            }
+        """.stripIndent(true)
+
+        specUnderTest.text = specUnderTest.text
+            .replace('//INSERT IMPORTS HERE', '''
+                import com.palantir.gradle.plugintesting.GradleTestVersions
+                import com.palantir.gradle.plugintesting.GradleVersionVariable
+            '''.stripIndent(true))
+
+            //language=groovy
+            .replace('//INSERT MORE TESTS HERE', '''
+               @GradleVersionVariable('version')
+               def 'cached with version: #version'() {
+                    expect:
+                    version != null
+
+                    where:
+                    version << GradleTestVersions.gradleVersionsForTests
+                }
+            '''.stripIndent())
+        runTasksSuccessfully('test')
+
+        when:
+        runTasksSuccessfully('cleanTest', 'test')
+
+        then:
+        def report = file('build/test-results/test/TEST-com.testing.HelloWorldSpec.xml').text
+        report.count('<skipped') == 2
+        report.contains('cached with version: 7.6.4')
+        report.contains('cached with version: 8.10.1')
+    }
+
     def 'checkUnusedDependencies ignores the plugin'() {
         given:
         //language=gradle
@@ -0,0 +1,95 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting
+
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+class PrepareGradleDistributionsTaskSpec extends AbstractTestingPluginSpec {
+
+    File outputFile
+    File distributionsDir
+
+    def setup() {
+        outputFile = new File(projectDir, 'build/plugin-testing/gradle-distributions.properties')
+        distributionsDir = new File(projectDir, 'distributions')
+        File mirror = directory('mirror')
+        writeFakeDistribution(new File(mirror, 'gradle-7.6.4-bin.zip'), '7.6.4')
+        writeFakeDistribution(new File(mirror, 'gradle-8.8-bin.zip'), '8.8')
+
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            repositories {
+                mavenCentral()
+                mavenLocal()
+            }
+
+            gradleTestUtils {
+                gradleVersions = ['7.6.4', '8.8']
+                prepareGradleDistributions = true
+                gradleDistributionBaseUrl = '${mirror.toURI().toString().replaceAll('/$', '')}'
+            }
+
+            tasks.named('prepareTestGradleDistributions') {
+                distributionsDirectory = file('distributions')
+            }
+        """.stripIndent(true)
+    }
+
+    def 'unpacks each distribution from the mirror'() {
+        when:
+        runTasksSuccessfully('prepareTestGradleDistributions')
+
+        then:
+        new File(distributionsDir, 'gradle-7.6.4/bin/gradle').canExecute()
+        new File(distributionsDir, 'gradle-8.8/lib/gradle-core-api-8.8.jar').exists()
+        outputFile.text.contains("7.6.4=${new File(distributionsDir, 'gradle-7.6.4').absolutePath}")
+        outputFile.text.contains("8.8=${new File(distributionsDir, 'gradle-8.8').absolutePath}")
+    }
+
+    def 'does not download again once unpacked'() {
+        when:
+        runTasksSuccessfully('prepareTestGradleDistributions')
+        def result = runTasksSuccessfully('prepareTestGradleDistributions', '--rerun-tasks')
+
+        then:
+        !result.standardOutput.contains('Downloading gradle')
+    }
+
+    def 'test tasks depend on the distributions'() {
+        when:
+        def result = runTasksSuccessfully('test')
+
+        then:
+        result.wasExecuted('prepareTestGradleDistributions')
+    }
+
+    private static void writeFakeDistribution(File zipFile, String version) {
+        zipFile.withOutputStream { out ->
+            def zip = new ZipOutputStream(out)
+            zip.putNextEntry(new ZipEntry("gradle-${version}/bin/gradle"))
+            zip.write('#!/bin/sh'.bytes)
+            zip.closeEntry()
+            zip.putNextEntry(new ZipEntry("gradle-${version}/lib/gradle-core-api-${version}.jar"))
+            zip.closeEntry()
+            zip.close()
+        }
+    }
+}
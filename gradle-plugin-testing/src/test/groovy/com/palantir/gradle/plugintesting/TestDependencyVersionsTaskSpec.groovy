@@ -112,4 +112,118 @@ class TestDependencyVersionsTaskSpec extends AbstractTestingPluginSpec {
         !outputFile.text.contains('null')
         outputFile.text.contains('org.junit.jupiter:junit-jupiter')
     }
+
+    def 'works with the configuration cache'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            repositories {
+                mavenCentral()
+                mavenLocal()
+            }
+
+            dependencies {
+                testImplementation 'com.google.guava:guava:33.3.1-jre'
+            }
+        """.stripIndent(true)
+
+        when:
+        runTasksSuccessfully('writeTestDependencyVersions', '--configuration-cache')
+        def result = runTasksSuccessfully('writeTestDependencyVersions', '--configuration-cache')
+
+        then:
+        result.standardOutput.contains('Configuration cache entry reused')
+        result.wasUpToDate('writeTestDependencyVersions')
+        outputFile.text.contains('com.google.guava:guava=33.3.1-jre')
+    }
+
+    def 'write transitive versions'() {
+        given:
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            repositories {
+                mavenCentral()
+                mavenLocal()
+            }
+
+            dependencies {
+                testImplementation 'com.google.guava:guava:33.3.1-jre'
+            }
+
+            gradleTestUtils {
+                includeTransitiveDependencyVersions = true
+            }
+        """.stripIndent(true)
+
+        when:
+        runTasksSuccessfully('writeTestDependencyVersions')
+
+        then:
+        def lines = outputFile.readLines()
+        def transitiveStart = lines.indexOf('[transitive]')
+        transitiveStart > 0
+        lines.indexOf('com.google.guava:guava=33.3.1-jre') < transitiveStart
+        lines.indexOf('com.google.guava:failureaccess=1.0.2') > transitiveStart
+        lines.count { it.startsWith('com.google.guava:guava=') } == 1
+    }
+
+    def 'aggregate versions of every project with overlays'() {
+        given:
+        ['a': '33.3.1-jre', 'b': '33.3.1-jre', 'c': '32.1.3-jre'].each { name, guavaVersion ->
+            //language=gradle
+            addSubproject(name, """
+                apply plugin: 'groovy'
+                apply plugin: 'com.palantir.gradle-plugin-testing'
+
+                repositories {
+                    mavenCentral()
+                    mavenLocal()
+                }
+
+                dependencies {
+                    testImplementation 'com.google.guava:guava:${guavaVersion}'
+                    testImplementation 'org.junit.jupiter:junit-jupiter:5.11.3'
+                }
+
+                gradleTestUtils {
+                    shareDependencyVersionResolution = true
+                    aggregateDependencyVersions = true
+                }
+            """.stripIndent(true))
+        }
+
+        when:
+        runTasksSuccessfully(AggregateTestDependencyVersionsTask.NAME)
+
+        then:
+        def aggregated = new File(projectDir, 'build/plugin-testing/aggregated')
+        def shared = new File(aggregated, 'dependency-versions.properties').readLines()
+        shared.contains('com.google.guava:guava=33.3.1-jre')
+        shared.contains('org.junit.jupiter:junit-jupiter=5.11.3')
+        new File(aggregated, 'overlays/a/dependency-versions.properties').readLines()
+                .every { !it.startsWith('com.google.guava:guava=') }
+        new File(aggregated, 'overlays/c/dependency-versions.properties').readLines()
+                .contains('com.google.guava:guava=32.1.3-jre')
+    }
+
+    def 'no aggregate task without aggregateDependencyVersions'() {
+        given:
+        //language=gradle
+        addSubproject('a', """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+        """.stripIndent(true))
+
+        when:
+        def result = runTasksSuccessfully('tasks', '--all')
+
+        then:
+        !result.standardOutput.contains(AggregateTestDependencyVersionsTask.NAME)
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting
+
+class TestMavenRepositoryTaskSpec extends AbstractTestingPluginSpec {
+
+    File repositoryDir
+
+    def setup() {
+        repositoryDir = new File(projectDir, 'build/plugin-testing/maven-repository')
+
+        //language=gradle
+        buildFile << """
+            apply plugin: 'groovy'
+            apply plugin: 'com.palantir.gradle-plugin-testing'
+
+            repositories {
+                mavenCentral()
+                mavenLocal()
+            }
+
+            dependencies {
+                testImplementation 'com.google.guava:guava:33.3.1-jre'
+            }
+        """.stripIndent(true)
+    }
+
+    def 'writes artifacts and metadata in maven layout'() {
+        when:
+        runTasksSuccessfully('writeTestMavenRepository')
+
+        then:
+        def guavaDir = new File(repositoryDir, 'com/google/guava/guava/33.3.1-jre')
+        new File(guavaDir, 'guava-33.3.1-jre.jar').exists()
+        new File(guavaDir, 'guava-33.3.1-jre.pom').exists()
+        new File(guavaDir, 'guava-33.3.1-jre.module').exists()
+
+        // parent poms are needed to read the pom of guava
+        new File(repositoryDir, 'com/google/guava/guava-parent/33.3.1-jre/guava-parent-33.3.1-jre.pom').exists()
+
+        // transitive dependencies
+        new File(repositoryDir, 'com/google/guava/failureaccess/1.0.2/failureaccess-1.0.2.jar').exists()
+    }
+
+    def 'generated builds resolve from the repository offline'() {
+        given:
+        buildFile << """
+            gradleTestUtils {
+                offlineMavenRepository = true
+            }
+        """.stripIndent(true)
+
+        when:
+        runTasksSuccessfully('writeTestMavenRepository')
+
+        // replace the build with one that can only resolve from the written repository
+        System.setProperty(TestContentHelpers.TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY, repositoryDir.absolutePath)
+        buildFile.text = """
+            apply plugin: 'java'
+            ${TestContentHelpers.offlineRepositories()}
+            dependencies {
+                implementation 'com.google.guava:guava:33.3.1-jre'
+            }
+            task resolveGuava {
+                doLast {
+                    println configurations.runtimeClasspath.files*.name
+                }
+            }
+        """.stripIndent(true)
+        def result = runTasksSuccessfully('--offline', 'resolveGuava')
+
+        then:
+        result.standardOutput.contains('guava-33.3.1-jre.jar')
+
+        cleanup:
+        System.clearProperty(TestContentHelpers.TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY)
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Turning the resolved test runtime classpath into the lines of the dependency versions file, for graphs with
+ * thousands of modules.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DependencyStringsBenchmark {
+    @Param({"1000", "5000"})
+    public int modules;
+
+    @Param({"false", "true"})
+    public boolean includeTransitive;
+
+    private ResolvedComponentResult root;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        root = SyntheticDependencies.graph(modules, 50, 5);
+    }
+
+    @Benchmark
+    public List<String> getDependencyStrings() {
+        return TestDependencyVersionsTask.getDependencyStrings(root, includeTransitive);
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.gradle.api.artifacts.ModuleVersionIdentifier;
+import org.gradle.api.artifacts.result.DependencyResult;
+import org.gradle.api.artifacts.result.ResolvedComponentResult;
+import org.gradle.api.artifacts.result.ResolvedDependencyResult;
+
+/**
+ * Generates dependency versions files and resolved dependency graphs of a given size.  The same seed always gives the
+ * same data, so runs of a benchmark against different versions of the code are comparable.
+ */
+final class SyntheticDependencies {
+    private static final long SEED = 42;
+
+    /**
+     * Returns the {@code group:name} of every module, spread over groups of about ten modules each.
+     */
+    static List<String> modules(int count) {
+        List<String> modules = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            modules.add("com.example.group" + (i / 10) + ":module-" + i);
+        }
+        return modules;
+    }
+
+    /**
+     * Returns the lines of a dependency versions file in which the given fraction of modules are transitive.
+     */
+    static List<String> versionsFile(int count, double transitiveFraction) {
+        List<String> modules = modules(count);
+        int direct = (int) (count * (1 - transitiveFraction));
+        List<String> lines = new ArrayList<>(count + 1);
+        for (int i = 0; i < count; i++) {
+            if (i == direct) {
+                lines.add(DependencyVersionIndex.TRANSITIVE_SECTION);
+            }
+            lines.add(modules.get(i) + "=" + version(i));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the root of a resolved graph of the given number of modules, with the given number of first level
+     * dependencies and each module depending on up to {@code fanOut} modules after it.  Gradle's result types are
+     * implemented with proxies so that the graph does not depend on a running build.
+     */
+    static ResolvedComponentResult graph(int count, int direct, int fanOut) {
+        Random random = new Random(SEED);
+        List<String> modules = modules(count);
+        List<Set<DependencyResult>> dependencies = new ArrayList<>(count);
+        List<ResolvedComponentResult> components = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String[] module = modules.get(i).split(":");
+            Set<DependencyResult> componentDependencies = new LinkedHashSet<>();
+            dependencies.add(componentDependencies);
+            components.add(component(moduleVersion(module[0], module[1], version(i)), componentDependencies));
+        }
+        // only depend on later modules, so the graph has no cycles
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < fanOut && i + 1 < count; j++) {
+                int target = i + 1 + random.nextInt(count - i - 1);
+                dependencies.get(i).add(dependency(components.get(target)));
+            }
+        }
+
+        Set<DependencyResult> rootDependencies = new LinkedHashSet<>();
+        for (int i = 0; i < Math.min(direct, count); i++) {
+            rootDependencies.add(dependency(components.get(i)));
+        }
+        return component(null, rootDependencies);
+    }
+
+    private static String version(int module) {
+        return "1." + (module % 7) + "." + (module % 13);
+    }
+
+    private static ResolvedComponentResult component(
+            ModuleVersionIdentifier moduleVersion, Set<DependencyResult> dependencies) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("getModuleVersion", moduleVersion);
+        values.put("getDependencies", dependencies);
+        return proxy(ResolvedComponentResult.class, values);
+    }
+
+    private static ResolvedDependencyResult dependency(ResolvedComponentResult selected) {
+        return proxy(ResolvedDependencyResult.class, Map.of("getSelected", selected, "isConstraint", false));
+    }
+
+    private static ModuleVersionIdentifier moduleVersion(String group, String name, String version) {
+        return proxy(
+                ModuleVersionIdentifier.class, Map.of("getGroup", group, "getName", name, "getVersion", version));
+    }
+
+    /**
+     * Implements the given interface with methods that return the given values, by method name.
+     */
+    private static <T> T proxy(Class<T> type, Map<String, Object> values) {
+        return type.cast(Proxy.newProxyInstance(
+                SyntheticDependencies.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) ->
+                        switch (method.getName()) {
+                            case "hashCode" -> System.identityHashCode(proxy);
+                            case "equals" -> proxy == args[0];
+                            case "toString" -> type.getSimpleName() + values;
+                            default -> {
+                                if (!values.containsKey(method.getName())) {
+                                    throw new UnsupportedOperationException(method.getName());
+                                }
+                                yield values.get(method.getName());
+                            }
+                        }));
+    }
+
+    private SyntheticDependencies() {}
+}
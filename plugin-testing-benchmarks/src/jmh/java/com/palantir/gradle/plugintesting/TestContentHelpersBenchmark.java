@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Writing the versions of a generated build's dependencies to its {@code versions.props}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestContentHelpersBenchmark {
+    @Param({"10", "100"})
+    public int dependencies;
+
+    private Path versionsFile;
+    private Path propsFile;
+    private List<String> modules;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        versionsFile = Files.createTempFile("dependency-versions", ".properties");
+        Files.write(versionsFile, SyntheticDependencies.versionsFile(1000, 0.8));
+        System.setProperty(
+                TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY, versionsFile.toString());
+        modules = SyntheticDependencies.modules(1000).subList(0, dependencies);
+        propsFile = Files.createTempFile("versions", ".props");
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyPropsFile() throws IOException {
+        // the file is appended to
+        Files.deleteIfExists(propsFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(versionsFile);
+        Files.deleteIfExists(propsFile);
+    }
+
+    @Benchmark
+    public void addVersionsToPropsFile() {
+        TestContentHelpers.addVersionsToPropsFile(propsFile.toFile(), modules);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Reading the dependency versions file, which every test fork does once, and looking up versions in it, which tests
+ * do for every dependency of every generated build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TestDependencyVersionsBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int modules;
+
+    private Path versionsFile;
+    private List<String> lookups;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        versionsFile = Files.createTempFile("dependency-versions", ".properties");
+        Files.write(versionsFile, SyntheticDependencies.versionsFile(modules, 0.8));
+        // versions are read once per JVM, and every benchmark runs in its own fork
+        System.setProperty(
+                TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY, versionsFile.toString());
+        // a mix of direct and transitive modules, in no particular order
+        lookups = SyntheticDependencies.modules(modules).stream()
+                .filter(module -> module.hashCode() % 3 == 0)
+                .toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(versionsFile);
+    }
+
+    @Benchmark
+    public DependencyVersionIndex loadVersions() {
+        return TestDependencyVersions.readIndex(new File(versionsFile.toString()));
+    }
+
+    @Benchmark
+    public String version() {
+        return TestDependencyVersions.version(nextLookup());
+    }
+
+    @Benchmark
+    public String resolve() {
+        return TestDependencyVersions.resolve(nextLookup());
+    }
+
+    @Benchmark
+    public String groupFallback() {
+        // not in the file, so falls back to the version of the other modules in the group if they agree
+        String lookup = nextLookup();
+        try {
+            return TestDependencyVersions.version(lookup.substring(0, lookup.indexOf(':')) + ":missing");
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    @Benchmark
+    public Map<String, String> wildcardVersions() {
+        return TestDependencyVersions.versions("com.example.group1*:*");
+    }
+
+    private String nextLookup() {
+        next = (next + 1) % lookups.size();
+        return lookups.get(next);
+    }
+}
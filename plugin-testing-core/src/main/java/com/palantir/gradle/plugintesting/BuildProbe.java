@@ -0,0 +1,150 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Init script that records when each phase of a build ended, the daemon that ran it and how much heap the daemon
+ * retained afterwards.  Times are microseconds since the epoch so that they can be compared with times taken in the
+ * test JVM.  Each build appends one line to the output file, so the same probe can measure any number of builds.
+ */
+final class BuildProbe {
+    private static final String INIT_SCRIPT =
+            """
+            import java.time.Instant
+            import java.time.temporal.ChronoUnit
+
+            def probeNow = { ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now()) }
+            def probeStartedAt = probeNow()
+            def settingsEvaluatedAt = probeStartedAt
+            def projectsEvaluatedAt = probeStartedAt
+            gradle.settingsEvaluated {
+                settingsEvaluatedAt = probeNow()
+            }
+            gradle.projectsEvaluated {
+                projectsEvaluatedAt = probeNow()
+            }
+            gradle.taskGraph.whenReady {
+                def taskGraphReadyAt = probeNow()
+                def runtime = Runtime.runtime
+                System.gc()
+                def usedHeapBytes = runtime.totalMemory() - runtime.freeMemory()
+                def daemonStartedAt = java.lang.management.ManagementFactory.runtimeMXBean.startTime
+                def pid = ProcessHandle.current().pid()
+                new File('%s').append([
+                        gradle.gradleVersion, pid, daemonStartedAt, probeStartedAt, settingsEvaluatedAt,
+                        projectsEvaluatedAt, taskGraphReadyAt, usedHeapBytes].join(',') + '\\n')
+            }
+            """;
+
+    /**
+     * Measurements of a single build.
+     */
+    record Measurement(
+            String gradleVersion,
+            long daemonPid,
+            long daemonStartedAtMillis,
+            long probeStartedAtMicros,
+            long settingsEvaluatedAtMicros,
+            long projectsEvaluatedAtMicros,
+            long taskGraphReadyAtMicros,
+            long usedHeapBytes) {
+
+        /**
+         * Time from the start of the build until all projects were configured.
+         */
+        double configurationMillis() {
+            return (projectsEvaluatedAtMicros - probeStartedAtMicros) / 1000.0;
+        }
+
+        double taskGraphMillis() {
+            return (taskGraphReadyAtMicros - projectsEvaluatedAtMicros) / 1000.0;
+        }
+    }
+
+    private final Path initScript;
+    private final Path output;
+
+    private BuildProbe(Path initScript, Path output) {
+        this.initScript = initScript;
+        this.output = output;
+    }
+
+    /**
+     * Writes the init script and its output file into the given directory.
+     */
+    static BuildProbe create(Path dir) {
+        Path initScript = dir.resolve("plugin-testing-probe.gradle");
+        Path output = dir.resolve("plugin-testing-probe.csv");
+        try {
+            Files.createDirectories(dir);
+            Files.deleteIfExists(output);
+            // forward slashes are valid on every platform and need no escaping in groovy strings
+            Files.writeString(
+                    initScript,
+                    INIT_SCRIPT.formatted(output.toAbsolutePath().toString().replace('\\', '/')),
+                    StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new BuildProbe(initScript, output);
+    }
+
+    /**
+     * Arguments that apply the probe to a build.
+     */
+    List<String> arguments() {
+        return List.of("--init-script", initScript.toAbsolutePath().toString());
+    }
+
+    /**
+     * Returns the measurements of the most recent build, if it got as far as calculating its task graph.
+     */
+    Optional<Measurement> lastMeasurement() {
+        try {
+            if (!Files.exists(output)) {
+                return Optional.empty();
+            }
+            List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+            return lines.stream()
+                    .filter(line -> !line.isBlank())
+                    .reduce((_first, second) -> second)
+                    .map(BuildProbe::parse);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Measurement parse(String line) {
+        String[] values = line.trim().split(",");
+        return new Measurement(
+                values[0],
+                Long.parseLong(values[1]),
+                Long.parseLong(values[2]),
+                Long.parseLong(values[3]),
+                Long.parseLong(values[4]),
+                Long.parseLong(values[5]),
+                Long.parseLong(values[6]),
+                Long.parseLong(values[7]));
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Runs TestKit builds while recording where their time went: starting or connecting to the daemon (including
+ * downloading and unpacking the distribution), settings, configuration, task graph calculation and execution, along
+ * with whether the daemon was reused.  Each build is appended as a line of JSON to the file of the test task, which
+ * the {@code buildTimingsReport} task aggregates.  Builds are attributed to the spock feature and iteration that ran
+ * them.  Without {@code gradleTestUtils.recordBuildTimings} the builds are run unchanged.
+ *
+ * <pre>{@code
+ * def result = BuildTimings.build(TestKitRunners.create(version).withProjectDir(projectDir).withArguments('build'))
+ * }</pre>
+ */
+public final class BuildTimings {
+    static final String TEST_BUILD_TIMINGS_FILE_SYSTEM_PROPERTY = "TEST_BUILD_TIMINGS_FILE";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * A single build.  Phases are missing if the build did not get as far as calculating its task graph, or if it
+     * reused a configuration cache entry.  The gradle version data variable is only present for iterations that run
+     * against a gradle version, which {@code AssignTestShardTask} uses to split their specs by version.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Invocation(
+            String spec,
+            String test,
+            String gradleVersion,
+            String gradleVersionParameter,
+            String startedAt,
+            boolean buildSucceeded,
+            double totalMillis,
+            Double startupMillis,
+            Double settingsMillis,
+            Double configurationMillis,
+            Double taskGraphMillis,
+            Double executionMillis,
+            Long daemonPid,
+            Boolean daemonReused) {}
+
+    /**
+     * Runs {@link GradleRunner#build()} and records it.
+     */
+    public static BuildResult build(GradleRunner runner) {
+        return record(runner, GradleRunner::build, true);
+    }
+
+    /**
+     * Runs {@link GradleRunner#buildAndFail()} and records it.
+     */
+    public static BuildResult buildAndFail(GradleRunner runner) {
+        return record(runner, GradleRunner::buildAndFail, false);
+    }
+
+    private static BuildResult record(
+            GradleRunner runner, Function<GradleRunner, BuildResult> build, boolean expectSuccess) {
+        String timingsFile = System.getProperty(TEST_BUILD_TIMINGS_FILE_SYSTEM_PROPERTY);
+        if (timingsFile == null) {
+            return build.apply(runner);
+        }
+
+        Path file = Paths.get(timingsFile);
+        Path probeDir = file.resolveSibling(file.getFileName() + "-probes").resolve(UUID.randomUUID().toString());
+        BuildProbe probe = BuildProbe.create(probeDir);
+        List<String> arguments = List.copyOf(runner.getArguments());
+        List<String> probedArguments = new ArrayList<>(arguments);
+        probedArguments.addAll(probe.arguments());
+
+        Instant startedAt = Instant.now();
+        boolean returned = false;
+        try {
+            BuildResult result = build.apply(runner.withArguments(probedArguments));
+            returned = true;
+            return result;
+        } finally {
+            runner.withArguments(arguments);
+            Instant finishedAt = Instant.now();
+            append(file, invocation(startedAt, finishedAt, returned == expectSuccess, probe.lastMeasurement()));
+            deleteRecursively(probeDir);
+        }
+    }
+
+    static Invocation invocation(
+            Instant startedAt,
+            Instant finishedAt,
+            boolean buildSucceeded,
+            Optional<BuildProbe.Measurement> measurement) {
+        Optional<CurrentTest> test = CurrentTest.get();
+        long start = micros(startedAt);
+        long finish = micros(finishedAt);
+        return new Invocation(
+                test.map(CurrentTest::spec).orElse("unknown"),
+                test.map(CurrentTest::test).orElse("unknown"),
+                measurement
+                        .map(BuildProbe.Measurement::gradleVersion)
+                        .or(() -> test.flatMap(CurrentTest::gradleVersion))
+                        .orElse("unknown"),
+                test.flatMap(CurrentTest::gradleVersion).orElse(null),
+                startedAt.toString(),
+                buildSucceeded,
+                millis(start, finish),
+                measurement.map(m -> millis(start, m.probeStartedAtMicros())).orElse(null),
+                measurement.map(m -> millis(m.probeStartedAtMicros(), m.settingsEvaluatedAtMicros())).orElse(null),
+                measurement.map(m -> millis(m.settingsEvaluatedAtMicros(), m.projectsEvaluatedAtMicros())).orElse(null),
+                measurement.map(m -> millis(m.projectsEvaluatedAtMicros(), m.taskGraphReadyAtMicros())).orElse(null),
+                measurement.map(m -> millis(m.taskGraphReadyAtMicros(), finish)).orElse(null),
+                measurement.map(BuildProbe.Measurement::daemonPid).orElse(null),
+                measurement.map(m -> m.daemonStartedAtMillis() < startedAt.toEpochMilli()).orElse(null));
+    }
+
+    /**
+     * Appends a line to the file while holding a lock, since all forks of a test task share the file.
+     */
+    private static void append(Path file, Invocation invocation) {
+        try {
+            byte[] line = (MAPPER.writeValueAsString(invocation) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(
+                            file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    FileLock _lock = channel.lock()) {
+                channel.write(ByteBuffer.wrap(line));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    private static double millis(long fromMicros, long toMicros) {
+        return Math.max(0, toMicros - fromMicros) / 1000.0;
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private BuildTimings() {}
+}
@@ -0,0 +1,291 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.collect.ImmutableSet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+
+/**
+ * Runs a generated build twice, either in the same directory or the second time in a copy of the project directory,
+ * and asserts that the second build reuses the work of the first: tasks must be {@code UP-TO-DATE} or
+ * {@code FROM-CACHE} and, in the same directory, the configuration cache entry must be reused.  Failures name each
+ * offending task along with the inputs that changed, taken from gradle's up-to-date reasons and a comparison of the
+ * build cache key inputs of both builds.
+ *
+ * <pre>{@code
+ * CacheReuseCheck.forArguments("build")
+ *         .withTasks(":generateThings")
+ *         .inSeparateDirectory()
+ *         .withPluginClasspath()
+ *         .run(projectDir);
+ * }</pre>
+ */
+public final class CacheReuseCheck {
+    private static final Set<TaskOutcome> REUSED_OUTCOMES =
+            ImmutableSet.of(TaskOutcome.UP_TO_DATE, TaskOutcome.FROM_CACHE, TaskOutcome.NO_SOURCE, TaskOutcome.SKIPPED);
+    private static final Set<String> NOT_COPIED = ImmutableSet.of("build", ".gradle");
+    private static final Pattern CACHE_KEY_INPUT = Pattern.compile("^Appending (.+?) to build cache key: (\\S+)");
+    private static final Pattern CACHE_KEY = Pattern.compile("^Build cache key for task '([^']+)' is");
+    private static final Pattern NOT_UP_TO_DATE = Pattern.compile("^Task '([^']+)' is not up-to-date because:");
+
+    private final List<String> arguments;
+    private List<String> taskPaths = List.of();
+    private boolean separateDirectory = false;
+    private boolean pluginClasspath = false;
+    private List<String> gradleVersions;
+
+    private CacheReuseCheck(List<String> arguments) {
+        this.arguments = arguments;
+    }
+
+    /**
+     * Creates a check of a build run with the given arguments, e.g. {@code build}.
+     */
+    public static CacheReuseCheck forArguments(String... arguments) {
+        return new CacheReuseCheck(List.of(arguments));
+    }
+
+    /**
+     * Paths of the tasks that must be reused, e.g. {@code :generateThings}.  Defaults to every task of the build.
+     */
+    public CacheReuseCheck withTasks(String... paths) {
+        this.taskPaths = List.of(paths);
+        return this;
+    }
+
+    /**
+     * Runs the second build in a copy of the project directory, so that tasks must be loaded from the build cache
+     * and the cache keys must not depend on absolute paths.  The configuration cache is not checked, since its
+     * entries are specific to the location of the build.  Tasks that are not cacheable, like {@code jar}, always
+     * run again in a new directory, so use {@link #withTasks} to check the tasks of the plugin.
+     */
+    public CacheReuseCheck inSeparateDirectory() {
+        this.separateDirectory = true;
+        return this;
+    }
+
+    /**
+     * Injects the plugin under test with {@link GradleRunner#withPluginClasspath()}.
+     */
+    public CacheReuseCheck withPluginClasspath() {
+        this.pluginClasspath = true;
+        return this;
+    }
+
+    /**
+     * Gradle versions to check.  Defaults to {@link GradleTestVersions#getGradleVersionsForTests()}.
+     */
+    public CacheReuseCheck withGradleVersions(List<String> versions) {
+        this.gradleVersions = List.copyOf(versions);
+        return this;
+    }
+
+    /**
+     * Runs the check against the build in the given directory with every gradle version.  Throws an
+     * {@link AssertionError} describing every task or configuration cache entry that was not reused.
+     */
+    public void run(File projectDir) {
+        List<String> failures = new ArrayList<>();
+        List<String> versions =
+                Optional.ofNullable(gradleVersions).orElseGet(GradleTestVersions::getGradleVersionsForTests);
+        for (String version : versions) {
+            failures.addAll(check(projectDir.toPath(), version));
+        }
+        if (!failures.isEmpty()) {
+            throw new AssertionError("Work of the first build was not reused by the second build:\n"
+                    + String.join("\n", failures));
+        }
+    }
+
+    private List<String> check(Path projectDir, String version) {
+        Path secondDir = projectDir;
+        if (separateDirectory) {
+            secondDir = projectDir.resolveSibling(projectDir.getFileName() + "-relocated-" + version);
+            deleteRecursively(secondDir);
+        }
+
+        BuildResult first = build(projectDir, version);
+        if (separateDirectory) {
+            copyProject(projectDir, secondDir);
+        }
+        BuildResult second = build(secondDir, version);
+
+        Map<String, Map<String, String>> firstKeys = cacheKeyInputs(first.getOutput());
+        Map<String, Map<String, String>> secondKeys = cacheKeyInputs(second.getOutput());
+        Map<String, List<String>> reasons = notUpToDateReasons(second.getOutput());
+
+        List<String> failures = new ArrayList<>();
+        for (BuildTask task : tasksToCheck(second)) {
+            if (REUSED_OUTCOMES.contains(task.getOutcome())) {
+                continue;
+            }
+            StringBuilder failure = new StringBuilder().append("  gradle ")
+                    .append(version)
+                    .append(": task '")
+                    .append(task.getPath())
+                    .append("' was ")
+                    .append(task.getOutcome());
+            reasons.getOrDefault(task.getPath(), List.of())
+                    .forEach(reason -> failure.append("\n      ").append(reason));
+            changedInputs(firstKeys.get(task.getPath()), secondKeys.get(task.getPath()))
+                    .forEach(input -> failure.append("\n      build cache key input changed: ").append(input));
+            failures.add(failure.toString());
+        }
+
+        if (!separateDirectory && !second.getOutput().contains("Configuration cache entry reused")) {
+            failures.add("  gradle " + version + ": configuration cache entry was not reused");
+        }
+        return failures;
+    }
+
+    private BuildResult build(Path projectDir, String version) {
+        List<String> buildArguments = new ArrayList<>(arguments);
+        buildArguments.add("--build-cache");
+        buildArguments.add("--info");
+        buildArguments.add("-Dorg.gradle.caching.debug=true");
+        if (!separateDirectory) {
+            buildArguments.add("--configuration-cache");
+        }
+        GradleRunner runner = TestKitRunners.create(version)
+                .withProjectDir(projectDir.toFile())
+                .withArguments(buildArguments);
+        if (pluginClasspath) {
+            runner = runner.withPluginClasspath();
+        }
+        return BuildTimings.build(runner);
+    }
+
+    @SuppressWarnings("for-rollout:PreferSafeLoggableExceptions")
+    private List<BuildTask> tasksToCheck(BuildResult result) {
+        if (taskPaths.isEmpty()) {
+            return result.getTasks();
+        }
+        return taskPaths.stream()
+                .map(path -> Optional.ofNullable(result.task(path))
+                        .orElseThrow(() -> new IllegalArgumentException("Task " + path + " did not run")))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the inputs of the build cache key of each task, as logged with {@code org.gradle.caching.debug}.  The
+     * inputs are logged before the line naming the task they belong to.
+     */
+    static Map<String, Map<String, String>> cacheKeyInputs(String output) {
+        Map<String, Map<String, String>> result = new LinkedHashMap<>();
+        Map<String, String> inputs = new LinkedHashMap<>();
+        for (String line : output.split("\\R")) {
+            Matcher input = CACHE_KEY_INPUT.matcher(line.trim());
+            if (input.find()) {
+                inputs.put(input.group(1), input.group(2));
+                continue;
+            }
+            Matcher key = CACHE_KEY.matcher(line.trim());
+            if (key.find()) {
+                result.put(key.group(1), inputs);
+                inputs = new LinkedHashMap<>();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the reasons gradle logged at info level for each task that was not up-to-date.
+     */
+    static Map<String, List<String>> notUpToDateReasons(String output) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        List<String> current = null;
+        for (String line : output.split("\\R")) {
+            Matcher matcher = NOT_UP_TO_DATE.matcher(line.trim());
+            if (matcher.find()) {
+                current = result.computeIfAbsent(matcher.group(1), _path -> new ArrayList<>());
+            } else if (current != null && line.startsWith("  ") && !line.isBlank()) {
+                current.add(line.trim());
+            } else {
+                current = null;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> changedInputs(Map<String, String> first, Map<String, String> second) {
+        if (first == null || second == null) {
+            return List.of();
+        }
+        return Stream.concat(first.keySet().stream(), second.keySet().stream())
+                .distinct()
+                .filter(input -> !Objects.equals(first.get(input), second.get(input)))
+                .collect(Collectors.toList());
+    }
+
+    private static void copyProject(Path source, Path target) {
+        try {
+            Files.walkFileTree(source, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes _attrs) throws IOException {
+                    if (!dir.equals(source) && NOT_COPIED.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    Files.createDirectories(target.resolve(source.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes _attrs) throws IOException {
+                    Files.copy(file, target.resolve(source.relativize(file)), StandardCopyOption.COPY_ATTRIBUTES);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
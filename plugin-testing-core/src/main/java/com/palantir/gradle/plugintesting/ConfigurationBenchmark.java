@@ -0,0 +1,251 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.base.Preconditions;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Mode;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Result;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Sample;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Measures the configuration time overhead of a plugin by generating a synthetic multi-project build that applies it
+ * to every subproject, and running it with {@code --dry-run} so that only configuration and task graph calculation
+ * are timed.  For each gradle version a few cold builds are run in fresh daemons, followed by warm builds in a daemon
+ * that has already run the warmup builds.  All builds share the TestKit directory of the version, which an unmeasured
+ * build fills first, so that cold builds measure starting a daemon rather than downloading dependencies.
+ *
+ * <pre>{@code
+ * ConfigurationBenchmarkResults results = ConfigurationBenchmark.forPlugin("com.example.my-plugin")
+ *         .withPluginCoordinates("com.example:my-plugin")
+ *         .withSubprojects(200)
+ *         .run(projectDir);
+ * results.writeJson(Paths.get("build/benchmarks/my-plugin.json"));
+ * results.assertNoRegression(Paths.get("src/test/resources/my-plugin-baseline.json"), 0.2);
+ * }</pre>
+ */
+public final class ConfigurationBenchmark {
+    private final String pluginId;
+    private Optional<String> pluginCoordinates = Optional.empty();
+    private Optional<List<File>> pluginClasspath = Optional.empty();
+    private int subprojects = 100;
+    private String subprojectContent = "";
+    private List<String> tasks = List.of("build");
+    private List<String> gradleVersions;
+    private int coldIterations = 1;
+    private int warmupIterations = 2;
+    private int iterations = 5;
+
+    private ConfigurationBenchmark(String pluginId) {
+        this.pluginId = pluginId;
+    }
+
+    /**
+     * Creates a benchmark of the plugin with the given id.  The plugin is found on the plugin classpath of the
+     * project running the test unless {@link #withPluginCoordinates} is used.
+     */
+    public static ConfigurationBenchmark forPlugin(String pluginId) {
+        return new ConfigurationBenchmark(pluginId);
+    }
+
+    /**
+     * Puts the plugin on the buildscript classpath using the coordinates without version, e.g.
+     * {@code com.example:my-plugin}, which is looked up with {@link TestDependencyVersions#resolve}.
+     */
+    public ConfigurationBenchmark withPluginCoordinates(String coordinates) {
+        this.pluginCoordinates = Optional.of(TestDependencyVersions.resolve(coordinates));
+        return this;
+    }
+
+    /**
+     * Injects the plugin from the given classpath instead of the plugin classpath of the project under test.
+     */
+    public ConfigurationBenchmark withPluginClasspath(List<File> classpath) {
+        this.pluginClasspath = Optional.of(List.copyOf(classpath));
+        return this;
+    }
+
+    /**
+     * Number of subprojects that apply the plugin.  Defaults to 100.
+     */
+    public ConfigurationBenchmark withSubprojects(int count) {
+        Preconditions.checkArgument(count > 0, "Need at least one subproject");
+        this.subprojects = count;
+        return this;
+    }
+
+    /**
+     * Extra content for the build file of every subproject, e.g. to configure the plugin.
+     */
+    public ConfigurationBenchmark withSubprojectContent(String content) {
+        this.subprojectContent = content;
+        return this;
+    }
+
+    /**
+     * Tasks whose task graph is calculated.  Defaults to {@code build}.
+     */
+    public ConfigurationBenchmark withTasks(String... taskNames) {
+        this.tasks = List.of(taskNames);
+        return this;
+    }
+
+    /**
+     * Gradle versions to measure.  Defaults to {@link GradleTestVersions#getGradleVersionsForTests()}.
+     */
+    public ConfigurationBenchmark withGradleVersions(List<String> versions) {
+        this.gradleVersions = List.copyOf(versions);
+        return this;
+    }
+
+    /**
+     * Number of builds run in a new daemon each.  Defaults to 1.
+     */
+    public ConfigurationBenchmark withColdIterations(int count) {
+        this.coldIterations = count;
+        return this;
+    }
+
+    /**
+     * Number of builds that warm up the daemon before the warm builds are measured.  Defaults to 2.
+     */
+    public ConfigurationBenchmark withWarmupIterations(int count) {
+        this.warmupIterations = count;
+        return this;
+    }
+
+    /**
+     * Number of measured builds in the warmed up daemon.  Defaults to 5.
+     */
+    public ConfigurationBenchmark withIterations(int count) {
+        this.iterations = count;
+        return this;
+    }
+
+    /**
+     * Generates the build in the given directory and measures it with every gradle version.
+     */
+    public ConfigurationBenchmarkResults run(File projectDir) {
+        Path root = projectDir.toPath();
+        writeBuild(root);
+        BuildProbe probe = BuildProbe.create(root.resolve("build-probe"));
+
+        List<String> versions =
+                Optional.ofNullable(gradleVersions).orElseGet(GradleTestVersions::getGradleVersionsForTests);
+        List<Result> results = new ArrayList<>();
+        for (String version : versions) {
+            File testKitDir = TestKitRunners.testKitDir(version);
+            List<Sample> cold = new ArrayList<>();
+            if (coldIterations > 0) {
+                // fills the caches of the TestKit directory, which the cold builds should not measure
+                measure(TestKitRunners.create(version, testKitDir), root, probe);
+            }
+            for (int i = 0; i < coldIterations; i++) {
+                TestKitRunners.stopDaemons(testKitDir);
+                cold.add(measure(TestKitRunners.create(version, testKitDir), root, probe));
+            }
+            results.add(Result.of(version, Mode.COLD, cold));
+
+            GradleRunner warmRunner = TestKitRunners.create(version, testKitDir);
+            for (int i = 0; i < warmupIterations; i++) {
+                measure(warmRunner, root, probe);
+            }
+            List<Sample> warm = new ArrayList<>();
+            for (int i = 0; i < iterations; i++) {
+                warm.add(measure(warmRunner, root, probe));
+            }
+            results.add(Result.of(version, Mode.WARM, warm));
+        }
+        return new ConfigurationBenchmarkResults(results);
+    }
+
+    @SuppressWarnings("for-rollout:PreferSafeLoggableExceptions")
+    Sample measure(GradleRunner runner, Path root, BuildProbe probe) {
+        List<String> arguments = new ArrayList<>(tasks);
+        arguments.add("--dry-run");
+        arguments.add("--no-configuration-cache");
+        arguments.addAll(probe.arguments());
+        GradleRunner configured = runner.withProjectDir(root.toFile()).withArguments(arguments);
+        if (pluginClasspath.isPresent()) {
+            configured = configured.withPluginClasspath(pluginClasspath.get());
+        } else if (pluginCoordinates.isEmpty()) {
+            configured = configured.withPluginClasspath();
+        }
+        configured.build();
+        return probe.lastMeasurement()
+                .map(measurement -> new Sample(
+                        measurement.configurationMillis(),
+                        measurement.taskGraphMillis(),
+                        measurement.usedHeapBytes()))
+                .orElseThrow(() -> new IllegalStateException("Build did not record a measurement: " + root));
+    }
+
+    void writeBuild(Path root) {
+        String settings = "rootProject.name = 'configuration-benchmark'\n"
+                + IntStream.range(0, subprojects)
+                        .mapToObj(i -> "include 'project-" + i + "'")
+                        .collect(Collectors.joining("\n"));
+
+        // plugins on the buildscript classpath are applied imperatively, plugins on the plugin classpath of the
+        // project under test can only be applied through the plugins block
+        String rootBuild = pluginCoordinates
+                .map(coordinates -> "buildscript {\n" + repositories() + "    dependencies {\n"
+                        + "        classpath '" + coordinates + "'\n    }\n}\n")
+                .orElse("");
+        String subprojectBuild = pluginCoordinates.isPresent()
+                ? "apply plugin: 'java'\napply plugin: '" + pluginId + "'\n"
+                : "plugins {\n    id 'java'\n    id '" + pluginId + "'\n}\n";
+
+        try {
+            Files.createDirectories(root);
+            Files.writeString(root.resolve("settings.gradle"), settings, StandardCharsets.UTF_8);
+            Files.writeString(root.resolve("build.gradle"), rootBuild, StandardCharsets.UTF_8);
+            for (int i = 0; i < subprojects; i++) {
+                Path subproject = root.resolve("project-" + i);
+                Files.createDirectories(subproject);
+                Files.writeString(
+                        subproject.resolve("build.gradle"),
+                        subprojectBuild + subprojectContent,
+                        StandardCharsets.UTF_8);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Resolves from the offline repository written by the PluginTestingPlugin if it is enabled.
+     */
+    private static String repositories() {
+        if (System.getProperty(TestContentHelpers.TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY) != null) {
+            return TestContentHelpers.offlineRepositories();
+        }
+        return Stream.of("mavenCentral()", "gradlePluginPortal()", "mavenLocal()")
+                .collect(Collectors.joining("\n        ", "    repositories {\n        ", "\n    }\n"));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Results of a {@link ConfigurationBenchmark}, which can be written to and read from JSON and compared against a
+ * stored baseline.
+ */
+public final class ConfigurationBenchmarkResults {
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /**
+     * Whether the builds of a result were the first build of a new daemon or reused a warmed up daemon.
+     */
+    public enum Mode {
+        COLD,
+        WARM
+    }
+
+    /**
+     * Measurements of a single build.
+     */
+    public record Sample(double configurationMillis, double taskGraphMillis, long usedHeapBytes) {}
+
+    /**
+     * Measurements of all builds with the same gradle version and mode.  The times are the medians and the heap is
+     * the maximum of the samples.
+     */
+    public record Result(
+            String gradleVersion,
+            Mode mode,
+            double configurationMillis,
+            double taskGraphMillis,
+            long usedHeapBytes,
+            List<Sample> samples) {
+
+        static Result of(String gradleVersion, Mode mode, List<Sample> samples) {
+            return new Result(
+                    gradleVersion,
+                    mode,
+                    median(samples, Sample::configurationMillis),
+                    median(samples, Sample::taskGraphMillis),
+                    samples.stream().mapToLong(Sample::usedHeapBytes).max().orElse(0),
+                    ImmutableList.copyOf(samples));
+        }
+    }
+
+    record Document(List<Result> results) {}
+
+    private final List<Result> results;
+
+    ConfigurationBenchmarkResults(List<Result> results) {
+        this.results = ImmutableList.copyOf(results);
+    }
+
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public Optional<Result> getResult(String gradleVersion, Mode mode) {
+        return results.stream()
+                .filter(result -> result.gradleVersion().equals(gradleVersion) && result.mode() == mode)
+                .findFirst();
+    }
+
+    public void writeJson(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            MAPPER.writeValue(file.toFile(), new Document(results));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static ConfigurationBenchmarkResults readJson(Path file) {
+        try {
+            return new ConfigurationBenchmarkResults(
+                    MAPPER.readValue(file.toFile(), Document.class).results());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Fails if the configuration time, task graph time or heap of any result is more than {@code threshold} (e.g.
+     * {@code 0.2} for 20%) worse than the result with the same gradle version and mode in the baseline file.  Results
+     * without a counterpart in the baseline are not checked.  If the baseline file does not exist, these results are
+     * written to it instead, so the first run establishes the baseline.
+     */
+    public void assertNoRegression(Path baselineFile, double threshold) {
+        if (!Files.exists(baselineFile)) {
+            writeJson(baselineFile);
+            return;
+        }
+
+        ConfigurationBenchmarkResults baseline = readJson(baselineFile);
+        List<String> regressions = new ArrayList<>();
+        for (Result result : results) {
+            baseline.getResult(result.gradleVersion(), result.mode())
+                    .ifPresent(expected -> regressions.addAll(regressions(expected, result, threshold)));
+        }
+
+        if (!regressions.isEmpty()) {
+            throw new AssertionError("Configuration performance regressed against " + baselineFile + ":\n"
+                    + String.join("\n", regressions));
+        }
+    }
+
+    private static List<String> regressions(Result expected, Result actual, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        Map<String, ToDoubleFunction<Result>> metrics = ImmutableMap.of(
+                "configuration millis", Result::configurationMillis,
+                "task graph millis", Result::taskGraphMillis,
+                "used heap bytes", Result::usedHeapBytes);
+        metrics.forEach((name, metric) -> {
+            double baselineValue = metric.applyAsDouble(expected);
+            double actualValue = metric.applyAsDouble(actual);
+            if (baselineValue > 0 && actualValue > baselineValue * (1 + threshold)) {
+                regressions.add(String.format(
+                        "  gradle %s (%s): %s %.1f is %.0f%% worse than baseline %.1f",
+                        actual.gradleVersion(),
+                        actual.mode(),
+                        name,
+                        actualValue,
+                        (actualValue / baselineValue - 1) * 100,
+                        baselineValue));
+            }
+        });
+        return regressions;
+    }
+
+    private static double median(List<Sample> samples, ToDoubleFunction<Sample> metric) {
+        double[] values = samples.stream().mapToDouble(metric).sorted().toArray();
+        if (values.length == 0) {
+            return 0;
+        }
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The test running on the current thread, set by {@link CurrentTestExtension} so that builds can be attributed to the
+ * spec, test and gradle version that ran them.
+ */
+record CurrentTest(String spec, String test, Optional<String> gradleVersion) {
+    private static final ThreadLocal<CurrentTest> current = new ThreadLocal<>();
+
+    static Optional<CurrentTest> get() {
+        return Optional.ofNullable(current.get());
+    }
+
+    static void set(CurrentTest test) {
+        current.set(test);
+    }
+
+    static void clear() {
+        current.remove();
+    }
+
+    /**
+     * Data variable holding the gradle version of an iteration, unless a {@link GradleVersionVariable} names another.
+     */
+    static final String GRADLE_VERSION_DATA_VARIABLE = "gradleVersion";
+
+    /**
+     * Returns the gradle version an iteration of the given feature runs against, i.e. the value of its
+     * {@code gradleVersion} data variable or of the data variable named by {@link GradleVersionVariable}, if any.
+     */
+    static Optional<String> gradleVersion(Class<?> spec, Method feature, Map<String, Object> dataVariables) {
+        String variable = Optional.ofNullable(feature.getAnnotation(GradleVersionVariable.class))
+                .or(() -> Optional.ofNullable(spec.getAnnotation(GradleVersionVariable.class)))
+                .map(GradleVersionVariable::value)
+                .orElse(GRADLE_VERSION_DATA_VARIABLE);
+        return Optional.ofNullable(dataVariables.get(variable)).map(Object::toString);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.util.Optional;
+import org.spockframework.runtime.extension.IGlobalExtension;
+import org.spockframework.runtime.model.FeatureInfo;
+import org.spockframework.runtime.model.SpecInfo;
+
+/**
+ * Spock extension that makes each iteration available as the {@link CurrentTest} while it runs.  Registered through
+ * {@code META-INF/services}.
+ */
+public final class CurrentTestExtension implements IGlobalExtension {
+
+    @Override
+    public void visitSpec(SpecInfo spec) {
+        for (FeatureInfo feature : spec.getAllFeatures()) {
+            feature.addIterationInterceptor(invocation -> {
+                Optional<String> gradleVersion = CurrentTest.gradleVersion(
+                        invocation.getSpec().getReflection(),
+                        invocation.getFeature().getFeatureMethod().getReflection(),
+                        invocation.getIteration().getDataVariables());
+                CurrentTest.set(new CurrentTest(
+                        invocation.getSpec().getReflection().getName(),
+                        invocation.getIteration().getDisplayName(),
+                        gradleVersion));
+                try {
+                    invocation.proceed();
+                } finally {
+                    CurrentTest.clear();
+                }
+            });
+        }
+    }
+}
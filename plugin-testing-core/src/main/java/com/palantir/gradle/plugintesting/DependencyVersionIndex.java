@@ -0,0 +1,174 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ObjectArrays;
+import com.google.common.primitives.Booleans;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable index of dependency versions, sorted by {@code group:name} so that exact lookups and wildcard lookups in
+ * the style of {@code versions.props} (e.g. {@code org.junit.jupiter:*} or {@code com.fasterxml.jackson.*:*}) are
+ * binary searches rather than scans of every dependency.
+ */
+final class DependencyVersionIndex {
+    /**
+     * Header in the dependency versions file after which all dependencies are transitive.
+     */
+    static final String TRANSITIVE_SECTION = "[transitive]";
+
+    private final String[] keys;
+    private final String[] versions;
+    private final boolean[] transitive;
+
+    private DependencyVersionIndex(String[] keys, String[] versions, boolean[] transitive) {
+        this.keys = keys;
+        this.versions = versions;
+        this.transitive = transitive;
+    }
+
+    /**
+     * Parses the lines of a dependency versions file, i.e. {@code group:name=version} lines with the transitive
+     * dependencies following a {@link #TRANSITIVE_SECTION} line.
+     */
+    static DependencyVersionIndex parse(List<String> lines) {
+        List<String> trimmed = lines.stream()
+                .map(String::trim)
+                .filter(line -> !line.isEmpty())
+                .collect(Collectors.toCollection(ArrayList::new));
+        int transitiveStart = trimmed.indexOf(TRANSITIVE_SECTION);
+        if (transitiveStart >= 0) {
+            trimmed.remove(transitiveStart);
+        }
+
+        int size = trimmed.size();
+        String[] keys = new String[size];
+        String[] versions = new String[size];
+        boolean[] transitive = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            String line = trimmed.get(i);
+            int separator = line.indexOf('=');
+            keys[i] = line.substring(0, separator);
+            versions[i] = line.substring(separator + 1);
+            transitive[i] = transitiveStart >= 0 && i >= transitiveStart;
+        }
+        return sorted(keys, versions, transitive);
+    }
+
+    /**
+     * Creates an index of direct dependencies from the given map of {@code group:name} to version.
+     */
+    static DependencyVersionIndex of(Map<String, String> dependencies) {
+        String[] keys = dependencies.keySet().toArray(new String[0]);
+        String[] versions = Arrays.stream(keys).map(dependencies::get).toArray(String[]::new);
+        return sorted(keys, versions, new boolean[keys.length]);
+    }
+
+    /**
+     * Returns an index of the entries of this index and the entries of the given index that this one does not have.
+     */
+    DependencyVersionIndex overlaying(DependencyVersionIndex base) {
+        // the entries of this index come first, so they win when sorting drops duplicated keys
+        return sorted(
+                ObjectArrays.concat(keys, base.keys, String.class),
+                ObjectArrays.concat(versions, base.versions, String.class),
+                Booleans.concat(transitive, base.transitive));
+    }
+
+    private static DependencyVersionIndex sorted(String[] keys, String[] versions, boolean[] transitive) {
+        // stable sort, so the first entry of a duplicated key (the direct dependency) wins
+        int[] order = IntStream.range(0, keys.length)
+                .boxed()
+                .sorted(Comparator.comparing(i -> keys[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int size = 0;
+        String[] sortedKeys = new String[keys.length];
+        String[] sortedVersions = new String[keys.length];
+        boolean[] sortedTransitive = new boolean[keys.length];
+        for (int index : order) {
+            if (size > 0 && sortedKeys[size - 1].equals(keys[index])) {
+                continue;
+            }
+            sortedKeys[size] = keys[index];
+            sortedVersions[size] = versions[index];
+            sortedTransitive[size] = transitive[index];
+            size++;
+        }
+        return new DependencyVersionIndex(
+                Arrays.copyOf(sortedKeys, size),
+                Arrays.copyOf(sortedVersions, size),
+                Arrays.copyOf(sortedTransitive, size));
+    }
+
+    /**
+     * Returns the version of exactly the given key.
+     */
+    Optional<String> version(String key) {
+        int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? Optional.of(versions[index]) : Optional.empty();
+    }
+
+    /**
+     * Returns whether the given key is only a transitive dependency.
+     */
+    Optional<Boolean> isTransitive(String key) {
+        int index = Arrays.binarySearch(keys, key);
+        return index >= 0 ? Optional.of(transitive[index]) : Optional.empty();
+    }
+
+    /**
+     * Returns the versions of all keys matching the given pattern, where {@code *} matches any characters.
+     */
+    SortedMap<String, String> matching(String pattern) {
+        int wildcard = pattern.indexOf('*');
+        if (wildcard < 0) {
+            return version(pattern)
+                    .<SortedMap<String, String>>map(version -> ImmutableSortedMap.of(pattern, version))
+                    .orElseGet(ImmutableSortedMap::of);
+        }
+
+        // every match starts with the text before the first wildcard, so only that range needs checking
+        String prefix = pattern.substring(0, wildcard);
+        Pattern regex = Pattern.compile(Arrays.stream(pattern.split("\\*", -1))
+                .map(Pattern::quote)
+                .collect(Collectors.joining(".*")));
+        int start = Arrays.binarySearch(keys, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        ImmutableSortedMap.Builder<String, String> result = ImmutableSortedMap.naturalOrder();
+        for (int i = start; i < keys.length && keys[i].startsWith(prefix); i++) {
+            if (regex.matcher(keys[i]).matches()) {
+                result.put(keys[i], versions[i]);
+            }
+        }
+        return result.build();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Scans the output of a build for gradle deprecation warnings line by line as it is written, failing only on
+ * deprecations that code in the packages of the plugin under test caused.  Unlike nebula's check, which searches the
+ * whole output of a build once it finishes, it only holds the current line and the deprecations found so far.
+ *
+ * <pre>{@code
+ * def deprecations = DeprecationFilter.forPluginUnderTest()
+ * deprecations.attachTo(TestKitRunners.create(version).withProjectDir(projectDir).withArguments('build')).build()
+ * deprecations.assertNoDeprecations()
+ * }</pre>
+ *
+ * A deprecation is attributed to the first frame of its stack trace outside of gradle, groovy and the JDK, so
+ * deprecated APIs called from build scripts of the test project are not attributed to the plugin.  Without any
+ * packages every deprecation fails.
+ */
+public final class DeprecationFilter extends Writer {
+    static final String TEST_DEPRECATION_PACKAGES_SYSTEM_PROPERTY = "TEST_DEPRECATION_PACKAGES";
+
+    /**
+     * Prints every deprecation, with the stack trace of where it happened.
+     */
+    static final ImmutableList<String> ARGUMENTS =
+            ImmutableList.of("--warning-mode=all", "-Dorg.gradle.deprecation.trace=true");
+
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final int MAX_DEPRECATIONS = 100;
+    private static final ImmutableList<String> FRAMEWORK_PACKAGES = ImmutableList.of(
+            "org.gradle.", "org.codehaus.groovy.", "groovy.", "java.", "javax.", "jdk.", "sun.", "com.sun.");
+
+    /**
+     * A deprecation warning and the frame it is attributed to, if gradle printed a stack trace.
+     */
+    public record Deprecation(String message, Optional<String> caller) {
+        @Override
+        public String toString() {
+            return caller.map(frame -> message + "\n\tat " + frame).orElse(message);
+        }
+    }
+
+    private final List<String> packages;
+    private final StringBuilder line = new StringBuilder();
+    private final List<Deprecation> deprecations = new ArrayList<>();
+    private int skippedDeprecations;
+    private String pendingMessage;
+
+    private DeprecationFilter(List<String> packages) {
+        this.packages = packages;
+    }
+
+    /**
+     * Fails on deprecations caused by code in any of the given packages or their subpackages.
+     */
+    public static DeprecationFilter forPackages(Collection<String> packages) {
+        return new DeprecationFilter(ImmutableList.copyOf(packages));
+    }
+
+    /**
+     * Fails on deprecations caused by the packages configured as {@code gradleTestUtils.deprecationPackages}.
+     */
+    public static DeprecationFilter forPluginUnderTest() {
+        return forPackages(Optional.ofNullable(System.getProperty(TEST_DEPRECATION_PACKAGES_SYSTEM_PROPERTY))
+                .map(packages -> Splitter.on(',').omitEmptyStrings().trimResults().splitToList(packages))
+                .orElseGet(List::of));
+    }
+
+    /**
+     * Makes the runner print deprecations with their stack traces and forward its output to this filter.  Replaces
+     * any writer the runner already forwards its output to.
+     */
+    public GradleRunner attachTo(GradleRunner runner) {
+        List<String> arguments = new ArrayList<>(runner.getArguments());
+        arguments.addAll(ARGUMENTS);
+        return runner.withArguments(arguments).forwardStdOutput(this);
+    }
+
+    @Override
+    public synchronized void write(char[] cbuf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            char character = cbuf[i];
+            if (character == '\n') {
+                endLine();
+            } else if (line.length() < MAX_LINE_LENGTH) {
+                line.append(character);
+            }
+        }
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public synchronized void close() {
+        endBuild();
+    }
+
+    /**
+     * Returns the deprecations attributed to the plugin under test so far.
+     */
+    public synchronized List<Deprecation> getDeprecations() {
+        endBuild();
+        return ImmutableList.copyOf(deprecations);
+    }
+
+    public synchronized void assertNoDeprecations() {
+        List<Deprecation> found = getDeprecations();
+        if (!found.isEmpty()) {
+            String more = skippedDeprecations > 0 ? "\n... and " + skippedDeprecations + " more" : "";
+            throw new AssertionError("Gradle deprecations caused by " + (packages.isEmpty() ? "the build" : packages)
+                    + ":\n" + found.stream().map(Deprecation::toString).collect(Collectors.joining("\n")) + more);
+        }
+    }
+
+    private void endBuild() {
+        if (line.length() > 0) {
+            endLine();
+        }
+        endDeprecation(Optional.empty());
+    }
+
+    private void endLine() {
+        String text = line.toString().strip();
+        line.setLength(0);
+        if (pendingMessage != null && text.startsWith("at ")) {
+            String frame = text.substring("at ".length());
+            if (!isFramework(frame)) {
+                endDeprecation(Optional.of(frame));
+            }
+            return;
+        }
+        if (pendingMessage != null && text.startsWith("...")) {
+            return;
+        }
+        endDeprecation(Optional.empty());
+        if (isDeprecation(text)) {
+            pendingMessage = text;
+        }
+    }
+
+    private void endDeprecation(Optional<String> caller) {
+        if (pendingMessage == null) {
+            return;
+        }
+        String message = pendingMessage;
+        pendingMessage = null;
+        if (!isAttributed(caller)) {
+            return;
+        }
+        if (deprecations.size() < MAX_DEPRECATIONS) {
+            deprecations.add(new Deprecation(message, caller));
+        } else {
+            skippedDeprecations++;
+        }
+    }
+
+    private boolean isAttributed(Optional<String> caller) {
+        if (packages.isEmpty()) {
+            return true;
+        }
+        return caller.map(frame -> packages.stream().anyMatch(pkg -> frame.startsWith(pkg + ".")))
+                .orElse(false);
+    }
+
+    private static boolean isFramework(String frame) {
+        return FRAMEWORK_PACKAGES.stream().anyMatch(frame::startsWith);
+    }
+
+    private static boolean isDeprecation(String text) {
+        // e.g. "... has been deprecated. This is scheduled to be removed in Gradle 9.0." or "... has been
+        // deprecated. This will fail with an error in Gradle 9.0."
+        return text.contains("has been deprecated") && text.contains(" in Gradle ");
+    }
+}
@@ -18,11 +18,19 @@ package com.palantir.gradle.plugintesting;
 
 import com.google.common.base.Suppliers;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Utility class to maintain and update canonical list versions of gradle to test against.  This helps verify that a
@@ -30,27 +38,97 @@ import java.util.function.Supplier;
  */
 public final class GradleTestVersions {
     static final String TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY = "TEST_GRADLE_VERSIONS";
+    static final String TEST_ALL_GRADLE_VERSIONS_SYSTEM_PROPERTY = "TEST_ALL_GRADLE_VERSIONS";
+    static final String TEST_GRADLE_VERSION_TIER_SYSTEM_PROPERTY = "TEST_GRADLE_VERSION_TIER";
+    static final String TEST_GRADLE_DISTRIBUTIONS_FILE_SYSTEM_PROPERTY = "TEST_GRADLE_DISTRIBUTIONS_FILE";
     static final List<String> DEFAULT_TEST_GRADLE_VERSIONS = Arrays.asList("7.6.4", "8.8");
 
     private static final Supplier<List<String>> gradleVersionsSupplier =
-            Suppliers.memoize(GradleTestVersions::loadVersions);
+            Suppliers.memoize(() -> loadVersions(TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY));
 
+    private static final Supplier<List<String>> allGradleVersionsSupplier =
+            Suppliers.memoize(() -> loadVersions(TEST_ALL_GRADLE_VERSIONS_SYSTEM_PROPERTY));
+
+    private static final Supplier<Map<String, File>> gradleInstallationsSupplier =
+            Suppliers.memoize(GradleTestVersions::loadInstallations);
+
+    /**
+     * Returns the gradle versions of the active {@link GradleVersionTier}.  Most tests should use these.  When tests
+     * are split across CI nodes with {@code gradleTestUtils.testShardCount}, specs that are split by gradle version
+     * only get the versions assigned to this node.
+     */
     public static List<String> getGradleVersionsForTests() {
-        return gradleVersionsSupplier.get();
+        Optional<List<String>> overridden = VersionOverrides.currentGradleVersions();
+        if (overridden.isPresent()) {
+            return overridden.get();
+        }
+        return TestShard.current()
+                .map(shard -> shard.gradleVersionsForCaller(gradleVersionsSupplier.get()))
+                .orElseGet(gradleVersionsSupplier);
+    }
+
+    /**
+     * Returns every configured gradle version regardless of the active tier, for tests of features that need full
+     * compatibility coverage on every build.  These are not split across CI nodes.
+     */
+    public static List<String> getAllGradleVersionsForTests() {
+        Optional<List<String>> overridden = VersionOverrides.currentGradleVersions();
+        if (overridden.isPresent()) {
+            return overridden.get();
+        }
+        if (System.getProperty(TEST_ALL_GRADLE_VERSIONS_SYSTEM_PROPERTY) == null) {
+            return getGradleVersionsForTests();
+        }
+        return allGradleVersionsSupplier.get();
+    }
+
+    /**
+     * Returns the tier that {@link #getGradleVersionsForTests()} was selected with.
+     */
+    public static GradleVersionTier getGradleVersionTier() {
+        return Optional.ofNullable(System.getProperty(TEST_GRADLE_VERSION_TIER_SYSTEM_PROPERTY))
+                .map(GradleVersionTier::fromName)
+                .orElse(GradleVersionTier.FULL);
+    }
+
+    /**
+     * Returns the unpacked distribution of the given gradle version if it was prepared by the PluginTestingPlugin.
+     * Runners can use it directly, e.g. with {@code GradleRunner.withGradleInstallation}, instead of downloading the
+     * distribution themselves.
+     */
+    public static Optional<File> getGradleInstallation(String gradleVersion) {
+        return Optional.ofNullable(gradleInstallationsSupplier.get().get(gradleVersion));
     }
 
-    private static List<String> loadVersions() {
+    static List<String> loadVersions(String systemProperty) {
         // use a set to get rid of duplicates
         Set<String> result = new LinkedHashSet<>();
 
-        if (System.getProperty(TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY) == null) {
+        if (System.getProperty(systemProperty) == null) {
             result.addAll(DEFAULT_TEST_GRADLE_VERSIONS);
         } else {
-            result.addAll(Arrays.asList(
-                    System.getProperty(TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY).split(",")));
+            result.addAll(Arrays.asList(System.getProperty(systemProperty).split(",")));
         }
         return ImmutableList.copyOf(result);
     }
 
+    private static Map<String, File> loadInstallations() {
+        String fileName = System.getProperty(TEST_GRADLE_DISTRIBUTIONS_FILE_SYSTEM_PROPERTY);
+        if (fileName == null) {
+            return ImmutableMap.of();
+        }
+
+        try {
+            Map<String, File> results = Files.readAllLines(Paths.get(fileName)).stream()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .map(line -> line.split("=", 2))
+                    .collect(Collectors.toMap(line -> line[0], line -> new File(line[1])));
+            return ImmutableMap.copyOf(results);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private GradleTestVersions() {}
 }
@@ -0,0 +1,47 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.util.Locale;
+
+/**
+ * How many of the configured gradle versions tests run against.
+ */
+public enum GradleVersionTier {
+    /**
+     * The oldest and newest configured versions and the version of the build running the tests.  Cheap enough for
+     * every pull request while still catching most compatibility problems.
+     */
+    EDGE,
+
+    /**
+     * Every configured version, e.g. for nightly or release builds.
+     */
+    FULL;
+
+    /**
+     * Parses the tier from its case-insensitive name, e.g. {@code edge}.
+     */
+    public static GradleVersionTier fromName(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
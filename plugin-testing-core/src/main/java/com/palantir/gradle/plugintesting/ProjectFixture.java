@@ -0,0 +1,231 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * A template project that is set up once per test fork and gradle version, including any setup builds and the
+ * project {@code .gradle} state they leave behind, and then cloned into the project directory of each test.
+ *
+ * <pre>{@code
+ * def setup() {
+ *     ProjectFixture.named('gcv-project')
+ *             .withContent { dir ->
+ *                 new File(dir, 'build.gradle').text = "apply plugin: 'com.palantir.consistent-versions'"
+ *                 TestContentHelpers.addVersionsToPropsFile(new File(dir, 'versions.props'), ['org.slf4j:slf4j-api'])
+ *             }
+ *             .withSetupTasks('writeVersionLocks')
+ *             .cloneInto(projectDir, gradleVersion)
+ * }
+ * }</pre>
+ *
+ * The template is built by the first test that asks for it in each fork, so fixtures with different content need
+ * different names.  Clones are copy-on-write copies where the filesystem supports them, and regular copies
+ * otherwise.
+ */
+public final class ProjectFixture {
+    /**
+     * Templates built by this fork, by name and gradle version.
+     */
+    private static final Map<String, Path> templates = new ConcurrentHashMap<>();
+
+    private final String name;
+    private Consumer<File> content = _dir -> {};
+    private List<String> setupTasks = List.of();
+    private boolean pluginClasspath = false;
+    private boolean hardlinks = false;
+
+    private ProjectFixture(String name) {
+        this.name = name;
+    }
+
+    public static ProjectFixture named(String name) {
+        return new ProjectFixture(name);
+    }
+
+    /**
+     * Writes the files of the template into the given directory.
+     */
+    public ProjectFixture withContent(Consumer<File> writer) {
+        this.content = writer;
+        return this;
+    }
+
+    /**
+     * Tasks run once in the template after its content is written, e.g. {@code writeVersionLocks}.
+     */
+    public ProjectFixture withSetupTasks(String... tasks) {
+        this.setupTasks = List.of(tasks);
+        return this;
+    }
+
+    /**
+     * Injects the plugin under test into the setup build with {@link GradleRunner#withPluginClasspath()}.
+     */
+    public ProjectFixture withPluginClasspath() {
+        this.pluginClasspath = true;
+        return this;
+    }
+
+    /**
+     * Hardlinks the files of the template instead of copying them.  Only safe if neither tests nor the builds they
+     * run modify files of the template in place, for example by appending to {@code build.gradle}.
+     */
+    public ProjectFixture withHardlinks() {
+        this.hardlinks = true;
+        return this;
+    }
+
+    /**
+     * Clones the template for the given gradle version into the project directory, building the template first if
+     * this fork has not done so yet.  Returns the project directory.
+     */
+    public File cloneInto(File projectDir, String gradleVersion) {
+        Path template = templates.computeIfAbsent(name + "@" + gradleVersion, _key -> buildTemplate(gradleVersion));
+        try {
+            Files.createDirectories(projectDir.toPath());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        if (hardlinks || !copyOnWrite(template, projectDir.toPath())) {
+            copy(template, projectDir.toPath(), hardlinks);
+        }
+        return projectDir;
+    }
+
+    private Path buildTemplate(String gradleVersion) {
+        Path template = TestKitRunners.baseDir()
+                .resolve("fixtures")
+                .resolve(name)
+                .resolve(gradleVersion)
+                .resolve(TestKitRunners.forkSlot());
+        deleteRecursively(template);
+        try {
+            Files.createDirectories(template);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        content.accept(template.toFile());
+        if (!setupTasks.isEmpty()) {
+            GradleRunner runner = TestKitRunners.create(gradleVersion)
+                    .withProjectDir(template.toFile())
+                    .withArguments(setupTasks);
+            if (pluginClasspath) {
+                runner = runner.withPluginClasspath();
+            }
+            BuildTimings.build(runner);
+        }
+        return template;
+    }
+
+    /**
+     * Clones the template using {@code cp}, which makes copy-on-write clones on filesystems like btrfs, xfs and
+     * APFS.  Returns false if that is not possible.
+     */
+    private static boolean copyOnWrite(Path template, Path target) {
+        String os = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        List<String> command = new ArrayList<>();
+        if (os.contains("linux")) {
+            command.addAll(List.of("cp", "-R", "--reflink=auto"));
+        } else if (os.contains("mac")) {
+            command.addAll(List.of("cp", "-R", "-c"));
+        } else {
+            return false;
+        }
+        command.add(template.toAbsolutePath() + "/.");
+        command.add(target.toAbsolutePath().toString());
+        try {
+            Process process = new ProcessBuilder(command)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+            return process.waitFor() == 0;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void copy(Path template, Path target, boolean hardlinks) {
+        try {
+            Files.walkFileTree(template, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes _attrs) throws IOException {
+                    Files.createDirectories(target.resolve(template.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes _attrs) throws IOException {
+                    Path clone = target.resolve(template.relativize(file));
+                    Files.deleteIfExists(clone);
+                    if (!hardlinks || !tryLink(file, clone)) {
+                        Files.copy(file, clone, StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static boolean tryLink(Path source, Path target) {
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    private static void deleteRecursively(Path path) {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(path)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import java.util.stream.Collectors;
  * Useful methods for writing common test content.
  */
 public final class TestContentHelpers {
+    static final String TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY = "TEST_MAVEN_REPOSITORY";
 
     private static final OpenOption[] WRITE_OPTIONS = {StandardOpenOption.CREATE, StandardOpenOption.APPEND};
 
@@ -48,5 +49,33 @@ public final class TestContentHelpers {
         }
     }
 
+    /**
+     * Returns a {@code repositories} block that resolves from the local maven repository written by the
+     * PluginTestingPlugin when {@code gradleTestUtils.offlineMavenRepository} is enabled.  Use it in place of
+     * {@code mavenCentral()} in generated build files, both in {@code buildscript} and the project itself, and run the
+     * generated build with {@code --offline}.
+     */
+    @SuppressWarnings("for-rollout:PreferSafeLoggableExceptions")
+    public static String offlineRepositories() {
+        String repository = System.getProperty(TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY);
+        if (repository == null) {
+            throw new IllegalStateException("No offline maven repository found.  Enable "
+                    + "gradleTestUtils.offlineMavenRepository to set " + TEST_MAVEN_REPOSITORY_SYSTEM_PROPERTY
+                    + " system property.");
+        }
+        return """
+                repositories {
+                    maven {
+                        url '%s'
+                        metadataSources {
+                            gradleMetadata()
+                            mavenPom()
+                        }
+                    }
+                }
+                """
+                .formatted(new File(repository).toURI());
+    }
+
     private TestContentHelpers() {}
 }
@@ -17,13 +17,14 @@
 package com.palantir.gradle.plugintesting;
 
 import com.google.common.base.Suppliers;
-import com.google.common.collect.ImmutableMap;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * Utility class to keep versions of dependencies referenced in test files up to date with the versions declared in
@@ -32,24 +33,39 @@ import java.util.stream.Collectors;
 public final class TestDependencyVersions {
     static final String TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY = "TEST_DEPENDENCIES_FILE";
 
-    private static final Supplier<Map<String, String>> versionsSupplier =
+    /**
+     * Versions of the project under test that take precedence over the versions file, when the versions file is
+     * shared by every project of the build.
+     */
+    static final String TEST_DEPENDENCIES_OVERLAY_FILE_SYSTEM_PROPERTY = "TEST_DEPENDENCIES_OVERLAY_FILE";
+
+    private static final Supplier<DependencyVersionIndex> versionsSupplier =
             Suppliers.memoize(TestDependencyVersions::loadVersions);
 
     /**
      * Returns the version of the given dependency. Throws exception if not found.
+     *
+     * Dependencies that are not found fall back to an entry for their whole group, i.e. {@code org} or {@code org:*}.
+     * The dependency can also be a wildcard in the style of {@code versions.props}, e.g. {@code org.junit.*:*}, if all
+     * matching dependencies have the same version.
      */
     public static String version(String depName) {
-        Map<String, String> versionsMap = versionsSupplier.get();
-        String result = versionsMap.get(depName);
-        if (result != null) {
-            return result;
+        DependencyVersionIndex index = index();
+        Optional<String> result = index.version(depName);
+        if (result.isPresent()) {
+            return result.get();
+        }
+
+        if (depName.contains("*")) {
+            return singleVersion(depName, index.matching(depName))
+                    .orElseThrow(() -> new IllegalArgumentException("No version found for " + depName));
         }
 
         if (depName.contains(":")) {
             String org = depName.substring(0, depName.indexOf(':'));
-            result = versionsMap.get(org);
-            if (result != null) {
-                return result;
+            result = index.version(org).or(() -> index.version(org + ":*"));
+            if (result.isPresent()) {
+                return result.get();
             }
             throw new IllegalArgumentException("No version found for " + depName + " or " + org);
         }
@@ -63,25 +79,59 @@ public final class TestDependencyVersions {
         return depName + ":" + version(depName);
     }
 
+    /**
+     * Returns the versions of all dependencies matching the given pattern, where {@code *} matches any characters,
+     * e.g. {@code com.palantir.*:*}.  Includes transitive dependencies if the PluginTestingPlugin was configured to
+     * write them.
+     */
+    public static Map<String, String> versions(String pattern) {
+        return index().matching(pattern);
+    }
+
+    /**
+     * Returns whether the given dependency is only on the test runtime classpath as a transitive dependency.  Throws
+     * exception if not found.
+     */
+    public static boolean isTransitive(String depName) {
+        return index().isTransitive(depName)
+                .orElseThrow(() -> new IllegalArgumentException("No version found for " + depName));
+    }
+
+    /**
+     * Returns the versions overridden for the current test, or the versions the PluginTestingPlugin wrote.
+     */
+    private static DependencyVersionIndex index() {
+        return VersionOverrides.currentDependencyVersions().orElseGet(versionsSupplier);
+    }
+
+    private static Optional<String> singleVersion(String depName, Map<String, String> matches) {
+        Set<String> distinct = new TreeSet<>(matches.values());
+        if (distinct.size() > 1) {
+            throw new IllegalArgumentException("Multiple versions found for " + depName + ": " + matches);
+        }
+        return distinct.stream().findFirst();
+    }
+
     @SuppressWarnings("for-rollout:PreferSafeLoggableExceptions")
-    private static Map<String, String> loadVersions() {
+    private static DependencyVersionIndex loadVersions() {
         String fileName = System.getProperty(TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY);
         if (fileName == null) {
             throw new IllegalStateException("No test dependencies file name found.  Use the PluginTestingPlugin to set "
                     + TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY + " system property.");
         }
-        File depsFile = new File(fileName);
+        DependencyVersionIndex versions = readIndex(new File(fileName));
+        String overlayFileName = System.getProperty(TEST_DEPENDENCIES_OVERLAY_FILE_SYSTEM_PROPERTY);
+        return overlayFileName == null ? versions : readIndex(new File(overlayFileName)).overlaying(versions);
+    }
+
+    @SuppressWarnings("for-rollout:PreferSafeLoggableExceptions")
+    static DependencyVersionIndex readIndex(File depsFile) {
         if (!depsFile.exists()) {
             throw new IllegalStateException("Test dependencies file does not exist: " + depsFile);
         }
 
         try {
-            Map<String, String> results = Files.readAllLines(depsFile.toPath()).stream()
-                    .map(String::trim)
-                    .filter(line -> !line.isEmpty())
-                    .map(dep -> dep.split("="))
-                    .collect(Collectors.toMap(dep -> dep[0], dep -> dep[1]));
-            return ImmutableMap.copyOf(results);
+            return DependencyVersionIndex.parse(Files.readAllLines(depsFile.toPath()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
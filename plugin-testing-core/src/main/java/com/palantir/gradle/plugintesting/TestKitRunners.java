@@ -0,0 +1,238 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.gradle.testkit.runner.GradleRunner;
+
+/**
+ * Creates TestKit runners that share one TestKit directory per gradle version within a test fork, so that daemons
+ * started by one test are reused by the next instead of being started again.  The number of gradle versions with
+ * live daemons in a fork is capped; the daemons of the least recently used version are stopped when the cap is
+ * exceeded.
+ */
+public final class TestKitRunners {
+    static final String TEST_KIT_BASE_DIR_SYSTEM_PROPERTY = "TEST_KIT_BASE_DIR";
+    static final String TEST_KIT_MAX_DAEMONS_SYSTEM_PROPERTY = "TEST_KIT_MAX_DAEMONS";
+    static final int DEFAULT_MAX_DAEMONS = 2;
+
+    /**
+     * JVM arguments of the daemons that runners start, written to the {@code gradle.properties} of their TestKit
+     * directory, which takes precedence over the {@code gradle.properties} of the test project.
+     */
+    static final String TEST_KIT_DAEMON_JVM_ARGS_SYSTEM_PROPERTY = "TEST_KIT_DAEMON_JVM_ARGS";
+
+    private static final Pattern DAEMON_LOG = Pattern.compile("daemon-(\\d+)\\.out\\.log");
+    private static final Pattern FORK_SLOT_LOCK = Pattern.compile("(fork-\\d+)\\.lock");
+
+    /**
+     * The slot and TestKit directories this fork uses under each base directory.
+     */
+    private static final Map<Path, ForkState> forkStates = new HashMap<>();
+
+    /**
+     * Returns a runner for the given gradle version that uses the shared TestKit directory of this fork.  Uses the
+     * distribution prepared by the PluginTestingPlugin if there is one.
+     */
+    public static GradleRunner create(String gradleVersion) {
+        return create(gradleVersion, testKitDir(gradleVersion));
+    }
+
+    /**
+     * Returns a runner for the given gradle version that uses the given TestKit directory.
+     */
+    static GradleRunner create(String gradleVersion, File testKitDir) {
+        String daemonJvmArgs = System.getProperty(TEST_KIT_DAEMON_JVM_ARGS_SYSTEM_PROPERTY);
+        if (daemonJvmArgs != null) {
+            writeDaemonJvmArgs(testKitDir.toPath(), daemonJvmArgs);
+        }
+        GradleRunner runner = GradleRunner.create().withTestKitDir(testKitDir);
+        return GradleTestVersions.getGradleInstallation(gradleVersion)
+                .map(runner::withGradleInstallation)
+                .orElseGet(() -> runner.withGradleVersion(gradleVersion));
+    }
+
+    /**
+     * Returns the TestKit directory shared by all tests in this fork that use the given gradle version.
+     */
+    public static synchronized File testKitDir(String gradleVersion) {
+        Path baseDir = baseDir();
+        Map<String, File> testKitDirs = forkState(baseDir).testKitDirs;
+        File dir = testKitDirs.computeIfAbsent(
+                gradleVersion, version -> baseDir.resolve(version).resolve(forkSlot()).toFile());
+
+        int maxDaemons = Integer.getInteger(TEST_KIT_MAX_DAEMONS_SYSTEM_PROPERTY, DEFAULT_MAX_DAEMONS);
+        Iterator<Map.Entry<String, File>> leastRecentlyUsed = testKitDirs.entrySet().iterator();
+        while (testKitDirs.size() > maxDaemons && leastRecentlyUsed.hasNext()) {
+            File evicted = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            stopDaemons(evicted);
+        }
+        return dir;
+    }
+
+    /**
+     * Stops all daemons started from the given TestKit directory.  TestKit has no API for this, so the daemons are
+     * found from the log files they write, which are named after their process id.
+     */
+    public static void stopDaemons(File testKitDir) {
+        Path daemonDir = testKitDir.toPath().resolve("daemon");
+        if (!Files.isDirectory(daemonDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(daemonDir, 2)) {
+            files.map(path -> DAEMON_LOG.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseLong(matcher.group(1)))
+                    .forEach(pid -> ProcessHandle.of(pid).ifPresent(ProcessHandle::destroy));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Stops the daemons of every fork slot under the given base directory that no running fork holds, i.e. daemons
+     * that no test can use any more.  Slots are locked while their daemons are stopped, so a fork starting meanwhile
+     * claims a different slot.
+     */
+    static void stopIdleDaemons(Path baseDir) {
+        Path slotsDir = baseDir.resolve("slots");
+        if (!Files.isDirectory(slotsDir)) {
+            return;
+        }
+        try (Stream<Path> slotLocks = Files.list(slotsDir)) {
+            for (Path slotLock : (Iterable<Path>) slotLocks::iterator) {
+                Matcher matcher = FORK_SLOT_LOCK.matcher(slotLock.getFileName().toString());
+                if (matcher.matches()) {
+                    stopDaemonsIfIdle(baseDir, slotLock, matcher.group(1));
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void stopDaemonsIfIdle(Path baseDir, Path slotLock, String slot) throws IOException {
+        try (FileChannel channel = FileChannel.open(slotLock, StandardOpenOption.WRITE)) {
+            FileLock lock;
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // held by this JVM
+                return;
+            }
+            if (lock == null) {
+                return;
+            }
+            try (FileLock _lock = lock;
+                    // TestKit directories are <base dir>/<gradle version>/<slot>
+                    Stream<Path> dirs = Files.walk(baseDir, 2)) {
+                dirs.filter(dir -> dir.getFileName().toString().equals(slot) && Files.isDirectory(dir))
+                        .forEach(dir -> stopDaemons(dir.toFile()));
+            }
+        }
+    }
+
+    private static void writeDaemonJvmArgs(Path testKitDir, String daemonJvmArgs) {
+        Path properties = testKitDir.resolve("gradle.properties");
+        String content = "org.gradle.jvmargs=" + daemonJvmArgs + "\n";
+        try {
+            if (Files.exists(properties) && Files.readString(properties).equals(content)) {
+                return;
+            }
+            Files.createDirectories(testKitDir);
+            Files.writeString(properties, content);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static Path baseDir() {
+        String baseDir = System.getProperty(TEST_KIT_BASE_DIR_SYSTEM_PROPERTY);
+        if (baseDir != null) {
+            return Paths.get(baseDir);
+        }
+        return Paths.get(
+                System.getProperty("java.io.tmpdir"), "plugin-testing-testkit-" + System.getProperty("user.name"));
+    }
+
+    /**
+     * Claims a slot that no other running fork holds, so that concurrent forks never share a TestKit directory while
+     * later builds reuse the directories (and their caches) of earlier ones.  The lock is held until the fork exits.
+     */
+    static synchronized String forkSlot() {
+        Path baseDir = baseDir();
+        ForkState state = forkState(baseDir);
+        if (state.slot != null) {
+            return state.slot;
+        }
+        try {
+            Path slotsDir = baseDir.resolve("slots");
+            Files.createDirectories(slotsDir);
+            for (int slot = 0; ; slot++) {
+                FileChannel channel = FileChannel.open(
+                        slotsDir.resolve("fork-" + slot + ".lock"),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE);
+                FileLock lock = channel.tryLock();
+                if (lock != null) {
+                    state.slotLock = lock;
+                    state.slot = "fork-" + slot;
+                    return state.slot;
+                }
+                channel.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ForkState forkState(Path baseDir) {
+        return forkStates.computeIfAbsent(baseDir.toAbsolutePath().normalize(), _dir -> new ForkState());
+    }
+
+    private static final class ForkState {
+        /**
+         * TestKit directories in use by this fork, in least recently used order.
+         */
+        private final Map<String, File> testKitDirs = new LinkedHashMap<>(16, 0.75f, true);
+
+        /**
+         * Held until the fork exits. Keeping a reference stops the channel from being closed when garbage collected.
+         */
+        private FileLock slotLock;
+
+        private String slot;
+    }
+
+    private TestKitRunners() {}
+}
@@ -0,0 +1,212 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.base.Suppliers;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk record of tests that passed against a gradle version, keyed by everything that can change their result: the
+ * plugin under test, the test runtime classpath (including the test classes and resources), the dependency versions
+ * files and the gradle version.  Tests whose key passed before can be skipped.
+ */
+final class TestResultCache {
+    static final String TEST_RESULT_CACHE_DIR_SYSTEM_PROPERTY = "TEST_RESULT_CACHE_DIR";
+
+    /**
+     * Written by the java-gradle-plugin plugin and used by TestKit to inject the plugin under test.
+     */
+    private static final String PLUGIN_METADATA_RESOURCE = "plugin-under-test-metadata.properties";
+
+    private static final Duration MAX_AGE = Duration.ofDays(30);
+
+    private static final Supplier<Optional<TestResultCache>> instance =
+            Suppliers.memoize(TestResultCache::fromSystemProperties);
+
+    private final Path directory;
+    private final HashCode pluginHash;
+    private final HashCode testClasspathHash;
+    private final HashCode dependencyVersionsHash;
+
+    private TestResultCache(
+            Path directory, HashCode pluginHash, HashCode testClasspathHash, HashCode dependencyVersionsHash) {
+        this.directory = directory;
+        this.pluginHash = pluginHash;
+        this.testClasspathHash = testClasspathHash;
+        this.dependencyVersionsHash = dependencyVersionsHash;
+    }
+
+    /**
+     * Returns the cache if the PluginTestingPlugin enabled it for this test task.
+     */
+    static Optional<TestResultCache> get() {
+        return instance.get();
+    }
+
+    private static Optional<TestResultCache> fromSystemProperties() {
+        String directory = System.getProperty(TEST_RESULT_CACHE_DIR_SYSTEM_PROPERTY);
+        if (directory == null) {
+            return Optional.empty();
+        }
+        List<Path> dependencyVersions = Stream.of(
+                        TestDependencyVersions.TEST_DEPENDENCIES_FILE_SYSTEM_PROPERTY,
+                        TestDependencyVersions.TEST_DEPENDENCIES_OVERLAY_FILE_SYSTEM_PROPERTY)
+                .map(System::getProperty)
+                .filter(Objects::nonNull)
+                .map(Paths::get)
+                .collect(Collectors.toList());
+        return Optional.of(create(Paths.get(directory), pluginClasspath(), testClasspath(), dependencyVersions));
+    }
+
+    static TestResultCache create(
+            Path directory, List<Path> pluginClasspath, List<Path> testClasspath, List<Path> dependencyVersions) {
+        pruneOldEntries(directory);
+        // the plugin classpath is usually part of the test classpath, no need to hash it twice
+        List<Path> otherTestClasspath = testClasspath.stream()
+                .filter(entry -> !pluginClasspath.contains(entry))
+                .collect(Collectors.toList());
+        return new TestResultCache(
+                directory, hashFiles(pluginClasspath), hashFiles(otherTestClasspath), hashFiles(dependencyVersions));
+    }
+
+    /**
+     * Returns the key of a test of the given class, identified by its name and parameters, against the given gradle
+     * version.
+     */
+    HashCode key(Class<?> testClass, String testName, String gradleVersion) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putBytes(pluginHash.asBytes());
+        hasher.putBytes(testClasspathHash.asBytes());
+        hasher.putBytes(dependencyVersionsHash.asBytes());
+        hasher.putString(testClass.getName(), StandardCharsets.UTF_8);
+        hasher.putString(testName, StandardCharsets.UTF_8);
+        hasher.putString(gradleVersion, StandardCharsets.UTF_8);
+        return hasher.hash();
+    }
+
+    boolean hasPassed(HashCode key) {
+        return Files.exists(entry(key));
+    }
+
+    void recordPassed(HashCode key) {
+        try {
+            Files.createDirectories(directory);
+            Path entry = entry(key);
+            if (!Files.exists(entry)) {
+                Files.createFile(entry);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private Path entry(HashCode key) {
+        return directory.resolve(key + ".passed");
+    }
+
+    /**
+     * Returns the classpath of the plugin under test, falling back to the whole test classpath when the test task does
+     * not belong to a java-gradle-plugin project.
+     */
+    private static List<Path> pluginClasspath() {
+        try (InputStream metadata =
+                TestResultCache.class.getClassLoader().getResourceAsStream(PLUGIN_METADATA_RESOURCE)) {
+            if (metadata != null) {
+                Properties properties = new Properties();
+                properties.load(metadata);
+                return Arrays.stream(properties.getProperty("implementation-classpath", "").split(File.pathSeparator))
+                        .filter(entry -> !entry.isEmpty())
+                        .map(Paths::get)
+                        .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return testClasspath();
+    }
+
+    /**
+     * Returns the test runtime classpath, which gradle puts on the classpath of the test JVM.
+     */
+    private static List<Path> testClasspath() {
+        return Arrays.stream(System.getProperty("java.class.path").split(File.pathSeparator))
+                .filter(entry -> !entry.isEmpty())
+                .map(Paths::get)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Hashes the relative paths and contents of the given files and of every file within the given directories.
+     */
+    private static HashCode hashFiles(List<Path> roots) {
+        Hasher hasher = Hashing.sha256().newHasher();
+        for (Path root : roots.stream().sorted().collect(Collectors.toList())) {
+            if (!Files.exists(root)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                    hasher.putString(root.relativize(file).toString(), StandardCharsets.UTF_8);
+                    hasher.putBytes(Files.readAllBytes(file));
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return hasher.hash();
+    }
+
+    /**
+     * Entries are never invalidated, only superseded by new keys, so remove the ones that have not been written for a
+     * while to keep the cache from growing without bound.
+     */
+    private static void pruneOldEntries(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(MAX_AGE));
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.collect(Collectors.toList())) {
+                if (Files.getLastModifiedTime(entry).compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(entry);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.hash.HashCode;
+import java.util.Optional;
+import org.opentest4j.TestAbortedException;
+import org.spockframework.runtime.extension.IGlobalExtension;
+import org.spockframework.runtime.extension.IMethodInvocation;
+import org.spockframework.runtime.model.FeatureInfo;
+import org.spockframework.runtime.model.SpecInfo;
+
+/**
+ * Spock extension that skips iterations of features which run against a gradle version, and passed with the same
+ * inputs in an earlier run, when the PluginTestingPlugin enabled the {@link TestResultCache}.  Skipped iterations are
+ * reported as aborted, which shows up as skipped in test reports.  Registered through {@code META-INF/services}.
+ */
+public final class TestResultCacheExtension implements IGlobalExtension {
+
+    @Override
+    public void visitSpec(SpecInfo spec) {
+        // registered for every spock spec on the classpath, so leave specs alone unless the cache was asked for
+        if (System.getProperty(TestResultCache.TEST_RESULT_CACHE_DIR_SYSTEM_PROPERTY) == null) {
+            return;
+        }
+        TestResultCache.get().ifPresent(cache -> {
+            for (FeatureInfo feature : spec.getAllFeatures()) {
+                feature.addIterationInterceptor(invocation -> intercept(cache, invocation));
+            }
+        });
+    }
+
+    private static void intercept(TestResultCache cache, IMethodInvocation invocation) throws Throwable {
+        Optional<String> gradleVersion = CurrentTest.gradleVersion(
+                invocation.getSpec().getReflection(),
+                invocation.getFeature().getFeatureMethod().getReflection(),
+                invocation.getIteration().getDataVariables());
+        if (gradleVersion.isEmpty()) {
+            invocation.proceed();
+            return;
+        }
+
+        HashCode key = cache.key(
+                invocation.getSpec().getReflection(),
+                invocation.getIteration().getDisplayName(),
+                gradleVersion.get());
+        if (cache.hasPassed(key)) {
+            throw new TestAbortedException(
+                    "Passed against gradle " + gradleVersion.get() + " with the same inputs in an earlier run");
+        }
+        invocation.proceed();
+        cache.recordPassed(key);
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Suppliers;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * The spec classes and gradle versions that this CI node runs when tests are split across nodes by the
+ * {@code assignTestShard} task.  Work is assigned by greedy bin-packing of the build durations recorded in earlier
+ * runs, so that nodes finish at about the same time rather than running the same number of specs.
+ * {@link TestShardFilter} removes the specs of other nodes, and {@link GradleTestVersions#getGradleVersionsForTests()}
+ * returns only the versions of the calling spec that were assigned to this node.
+ *
+ * @param specs specs that run against every gradle version on this node
+ * @param gradleVersions specs that are split by gradle version, with the versions they run against on this node
+ * @param otherSpecs specs that only run on other nodes
+ */
+record TestShard(
+        int index,
+        int count,
+        double estimatedMillis,
+        Set<String> specs,
+        Map<String, Set<String>> gradleVersions,
+        Set<String> otherSpecs) {
+    static final String TEST_SHARD_FILE_SYSTEM_PROPERTY = "TEST_SHARD_FILE";
+
+    /**
+     * Key of the timings of builds that were not run against a gradle version parameter.
+     */
+    static final String WHOLE_SPEC = "*";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Supplier<Optional<TestShard>> current = Suppliers.memoize(TestShard::load);
+
+    /**
+     * Returns the shard of this node, if tests are split across nodes.
+     */
+    static Optional<TestShard> current() {
+        return current.get();
+    }
+
+    /**
+     * Assigns work to {@code count} nodes and returns the share of node {@code index}.  A spec whose builds were
+     * recorded with a gradle version parameter is split into a unit per version, and any other spec is a single unit.
+     * Units with recorded durations are handed out longest first, each to the node with the least work so far, and
+     * units without (new specs and new gradle versions) are then dealt out in turn, starting with the nodes with the
+     * least work, so that every node gets an even share of them.
+     *
+     * @param timings milliseconds spent in builds of each spec, by gradle version or {@link #WHOLE_SPEC}
+     */
+    static TestShard assign(
+            Set<String> specs,
+            List<String> gradleVersions,
+            Map<String, Map<String, Double>> timings,
+            int index,
+            int count) {
+        List<Unit> known = new ArrayList<>();
+        List<Unit> unknown = new ArrayList<>();
+        for (String spec : new TreeSet<>(specs)) {
+            Map<String, Double> specTimings = timings.getOrDefault(spec, Map.of());
+            boolean splitByVersion = specTimings.keySet().stream().anyMatch(key -> !key.equals(WHOLE_SPEC));
+            if (splitByVersion) {
+                for (String version : gradleVersions) {
+                    Double millis = specTimings.get(version);
+                    (millis == null ? unknown : known).add(new Unit(spec, Optional.of(version), millis));
+                }
+            } else {
+                Double millis = specTimings.get(WHOLE_SPEC);
+                (millis == null ? unknown : known).add(new Unit(spec, Optional.empty(), millis));
+            }
+        }
+
+        double[] loads = new double[count];
+        Map<Unit, Integer> nodes = new TreeMap<>();
+        known.sort(Comparator.comparingDouble(Unit::millis).reversed().thenComparing(Comparator.naturalOrder()));
+        for (Unit unit : known) {
+            int node = leastLoaded(loads, new int[count]);
+            loads[node] += unit.millis();
+            nodes.put(unit, node);
+        }
+        int[] unknownUnits = new int[count];
+        for (Unit unit : unknown) {
+            int node = leastLoaded(loads, unknownUnits);
+            unknownUnits[node]++;
+            nodes.put(unit, node);
+        }
+
+        Set<String> wholeSpecs = new TreeSet<>();
+        Map<String, Set<String>> versionedSpecs = new TreeMap<>();
+        Set<String> otherSpecs = new TreeSet<>();
+        nodes.forEach((unit, node) -> {
+            if (node != index) {
+                otherSpecs.add(unit.spec());
+            } else if (unit.gradleVersion().isPresent()) {
+                versionedSpecs
+                        .computeIfAbsent(unit.spec(), _spec -> new TreeSet<>())
+                        .add(unit.gradleVersion().get());
+            } else {
+                wholeSpecs.add(unit.spec());
+            }
+        });
+        otherSpecs.removeAll(versionedSpecs.keySet());
+        return new TestShard(index, count, loads[index], wholeSpecs, versionedSpecs, otherSpecs);
+    }
+
+    /**
+     * Returns the node with the fewest units, and of those the one with the least work.
+     */
+    private static int leastLoaded(double[] loads, int[] units) {
+        int node = 0;
+        for (int i = 1; i < loads.length; i++) {
+            if (units[i] < units[node] || (units[i] == units[node] && loads[i] < loads[node])) {
+                node = i;
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Returns whether the spec has anything to run on this node when testing the given gradle versions.  Specs the
+     * assignment does not know about, e.g. from another source set, are split evenly by name.
+     */
+    boolean runs(String spec, List<String> testedVersions) {
+        if (specs.contains(spec)) {
+            return true;
+        }
+        if (gradleVersions.containsKey(spec)) {
+            return testedVersions.stream().anyMatch(gradleVersions.get(spec)::contains);
+        }
+        if (otherSpecs.contains(spec)) {
+            return false;
+        }
+        return Math.floorMod(spec.hashCode(), count) == index;
+    }
+
+    /**
+     * Returns the given versions that were assigned to this node for the spec calling this method, found on the
+     * stack so that data providers and method sources of specs split by version need no changes.  Specs that are not
+     * split by version run every version.
+     */
+    List<String> gradleVersionsForCaller(List<String> versions) {
+        return StackWalker.getInstance()
+                .walk(frames -> frames.map(frame -> specName(frame.getClassName()))
+                        .filter(gradleVersions::containsKey)
+                        .findFirst())
+                .map(spec -> versions.stream()
+                        .filter(gradleVersions.get(spec)::contains)
+                        .collect(Collectors.toUnmodifiableList()))
+                .orElse(versions);
+    }
+
+    /**
+     * Returns the top level class of the given class, which is the spec that nested classes and closures belong to.
+     */
+    static String specName(String className) {
+        int nested = className.indexOf('$');
+        return nested < 0 ? className : className.substring(0, nested);
+    }
+
+    static TestShard read(Path file) {
+        try {
+            return MAPPER.readValue(file.toFile(), TestShard.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read test shard from " + file, e);
+        }
+    }
+
+    void write(Path file) {
+        try {
+            MAPPER.writeValue(file.toFile(), this);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write test shard to " + file, e);
+        }
+    }
+
+    private static Optional<TestShard> load() {
+        return Optional.ofNullable(System.getProperty(TEST_SHARD_FILE_SYSTEM_PROPERTY))
+                .map(fileName -> read(Paths.get(fileName)));
+    }
+
+    private record Unit(String spec, Optional<String> gradleVersion, Double millis) implements Comparable<Unit> {
+        @Override
+        public int compareTo(Unit other) {
+            return Comparator.comparing(Unit::spec)
+                    .thenComparing(unit -> unit.gradleVersion().orElse(""))
+                    .compare(this, other);
+        }
+    }
+}
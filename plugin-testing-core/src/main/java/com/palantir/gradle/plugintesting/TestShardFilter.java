@@ -0,0 +1,66 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.util.List;
+import java.util.Optional;
+import org.junit.platform.engine.FilterResult;
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.PostDiscoveryFilter;
+
+/**
+ * Removes the specs that the {@link TestShard} of this node assigned to other nodes, for spock specs and junit tests
+ * alike.  Registered through {@code META-INF/services}, and includes everything unless tests are split across nodes.
+ */
+public final class TestShardFilter implements PostDiscoveryFilter {
+    private final List<String> testedVersions =
+            GradleTestVersions.loadVersions(GradleTestVersions.TEST_GRADLE_VERSIONS_SYSTEM_PROPERTY);
+
+    @Override
+    public FilterResult apply(TestDescriptor descriptor) {
+        Optional<TestShard> shard = TestShard.current();
+        Optional<String> spec = spec(descriptor);
+        if (shard.isEmpty() || spec.isEmpty()) {
+            return FilterResult.included("Not split across nodes");
+        }
+        return shard.get().runs(spec.get(), testedVersions)
+                ? FilterResult.included("Assigned to node " + shard.get().index())
+                : FilterResult.excluded("Assigned to another node");
+    }
+
+    /**
+     * Returns the spec of the descriptor or of its closest ancestor with a class, since the launcher only removes
+     * descriptors without children and features and iterations are only sometimes discovered upfront.
+     */
+    private static Optional<String> spec(TestDescriptor descriptor) {
+        for (Optional<TestDescriptor> current = Optional.of(descriptor);
+                current.isPresent();
+                current = current.get().getParent()) {
+            Optional<TestSource> source = current.get().getSource();
+            if (source.isPresent() && source.get() instanceof ClassSource classSource) {
+                return Optional.of(TestShard.specName(classSource.getClassName()));
+            }
+            if (source.isPresent() && source.get() instanceof MethodSource methodSource) {
+                return Optional.of(TestShard.specName(methodSource.getClassName()));
+            }
+        }
+        return Optional.empty();
+    }
+}
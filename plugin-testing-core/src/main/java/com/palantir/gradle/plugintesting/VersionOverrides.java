@@ -0,0 +1,164 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import com.google.common.collect.ImmutableList;
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+
+/**
+ * Dependency versions and gradle versions that {@link TestDependencyVersions} and {@link GradleTestVersions} return
+ * to the current test instead of the ones the PluginTestingPlugin passed to the test JVM.  Overrides are immutable and
+ * only apply to the thread they are applied on, so tests running in parallel within a fork can use different versions
+ * without touching system properties.  They are not inherited by other threads, which may be pooled and outlive the
+ * scope, so pass them on explicitly with {@link #current()} and {@link #wrap(Callable)}.
+ *
+ * <pre>{@code
+ * VersionOverrides overrides = VersionOverrides.create()
+ *         .withDependencyVersions(Map.of("com.google.guava:guava", "33.3.1-jre"))
+ *         .withGradleVersions(List.of("8.8"));
+ *
+ * try (VersionOverrides.Scope _scope = overrides.apply()) {
+ *     TestDependencyVersions.resolve("com.google.guava:guava"); // com.google.guava:guava:33.3.1-jre
+ * }
+ * }</pre>
+ *
+ * JUnit 5 tests can apply overrides to every test of a class with {@link VersionOverridesExtension}.  Spock specs can
+ * apply them in {@code setup()} and close the scope in {@code cleanup()}, which run on the same thread as the feature.
+ */
+public final class VersionOverrides {
+    private static final ThreadLocal<VersionOverrides> current = new ThreadLocal<>();
+
+    private static final VersionOverrides NONE = new VersionOverrides(Optional.empty(), Optional.empty());
+
+    private final Optional<DependencyVersionIndex> dependencyVersions;
+    private final Optional<List<String>> gradleVersions;
+
+    private VersionOverrides(
+            Optional<DependencyVersionIndex> dependencyVersions, Optional<List<String>> gradleVersions) {
+        this.dependencyVersions = dependencyVersions;
+        this.gradleVersions = gradleVersions;
+    }
+
+    /**
+     * Returns overrides that override nothing yet.
+     */
+    public static VersionOverrides create() {
+        return NONE;
+    }
+
+    /**
+     * Returns the overrides applied to the current thread, so that they can be applied to work on other threads.
+     */
+    public static VersionOverrides current() {
+        return Optional.ofNullable(current.get()).orElse(NONE);
+    }
+
+    /**
+     * Overrides the dependency versions with the given map of {@code group:name} to version.
+     */
+    public VersionOverrides withDependencyVersions(Map<String, String> versions) {
+        return new VersionOverrides(Optional.of(DependencyVersionIndex.of(versions)), gradleVersions);
+    }
+
+    /**
+     * Overrides the dependency versions with the contents of a file in the format the PluginTestingPlugin writes.
+     */
+    public VersionOverrides withDependencyVersionsFile(File file) {
+        return new VersionOverrides(Optional.of(TestDependencyVersions.readIndex(file)), gradleVersions);
+    }
+
+    /**
+     * Overrides both the gradle versions of the active tier and the list of all gradle versions.
+     */
+    public VersionOverrides withGradleVersions(List<String> versions) {
+        return new VersionOverrides(dependencyVersions, Optional.of(ImmutableList.copyOf(versions)));
+    }
+
+    /**
+     * Applies the overrides to the current thread until the returned scope is closed, on top of any overrides that
+     * are already applied.
+     */
+    public Scope apply() {
+        VersionOverrides previous = current.get();
+        VersionOverrides merged = previous == null
+                ? this
+                : new VersionOverrides(
+                        dependencyVersions.or(() -> previous.dependencyVersions),
+                        gradleVersions.or(() -> previous.gradleVersions));
+        current.set(merged);
+        return new Scope(previous);
+    }
+
+    /**
+     * Runs the given action with the overrides applied.
+     */
+    public <T> T call(Callable<T> action) throws Exception {
+        try (Scope _scope = apply()) {
+            return action.call();
+        }
+    }
+
+    /**
+     * Returns an action that runs the given action with the overrides applied, on whichever thread it is called.
+     */
+    public <T> Callable<T> wrap(Callable<T> action) {
+        return () -> call(action);
+    }
+
+    /**
+     * Returns an action that runs the given action with the overrides applied, on whichever thread it is run.
+     */
+    public Runnable wrap(Runnable action) {
+        return () -> {
+            try (Scope _scope = apply()) {
+                action.run();
+            }
+        };
+    }
+
+    static Optional<DependencyVersionIndex> currentDependencyVersions() {
+        return Optional.ofNullable(current.get()).flatMap(overrides -> overrides.dependencyVersions);
+    }
+
+    static Optional<List<String>> currentGradleVersions() {
+        return Optional.ofNullable(current.get()).flatMap(overrides -> overrides.gradleVersions);
+    }
+
+    /**
+     * Restores the overrides that applied before {@link #apply()} when closed.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final VersionOverrides previous;
+
+        private Scope(VersionOverrides previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import java.lang.reflect.Method;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+/**
+ * Applies {@link VersionOverrides} around each test of a JUnit 5 class, including its {@code @BeforeEach} and
+ * {@code @AfterEach} methods, so that tests running concurrently see only their own versions.
+ *
+ * <pre>{@code
+ * @RegisterExtension
+ * static final VersionOverridesExtension versions = VersionOverridesExtension.forOverrides(
+ *         VersionOverrides.create().withGradleVersions(List.of("8.8")));
+ * }</pre>
+ */
+public final class VersionOverridesExtension implements InvocationInterceptor {
+    private final VersionOverrides overrides;
+
+    private VersionOverridesExtension(VersionOverrides overrides) {
+        this.overrides = overrides;
+    }
+
+    public static VersionOverridesExtension forOverrides(VersionOverrides overrides) {
+        return new VersionOverridesExtension(overrides);
+    }
+
+    @Override
+    public void interceptBeforeEachMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> _invocationContext,
+            ExtensionContext _extensionContext)
+            throws Throwable {
+        proceed(invocation);
+    }
+
+    @Override
+    public void interceptTestMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> _invocationContext,
+            ExtensionContext _extensionContext)
+            throws Throwable {
+        proceed(invocation);
+    }
+
+    @Override
+    public void interceptTestTemplateMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> _invocationContext,
+            ExtensionContext _extensionContext)
+            throws Throwable {
+        proceed(invocation);
+    }
+
+    @Override
+    public void interceptAfterEachMethod(
+            Invocation<Void> invocation,
+            ReflectiveInvocationContext<Method> _invocationContext,
+            ExtensionContext _extensionContext)
+            throws Throwable {
+        proceed(invocation);
+    }
+
+    private void proceed(Invocation<Void> invocation) throws Throwable {
+        try (VersionOverrides.Scope _scope = overrides.apply()) {
+            invocation.proceed();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class BuildTimingsTests {
+    private static final Instant STARTED_AT = Instant.ofEpochMilli(1_000_000);
+
+    @AfterEach
+    public void afterEach() {
+        CurrentTest.clear();
+    }
+
+    @Test
+    public void splitsBuildIntoPhases() {
+        CurrentTest.set(new CurrentTest("com.example.MySpec", "works: 8.8", Optional.of("8.8")));
+        // microseconds since the epoch, 500ms after the build started
+        long probeStartedAt = 1_000_500_000L;
+        BuildProbe.Measurement measurement = new BuildProbe.Measurement(
+                "8.8",
+                42,
+                999_000,
+                probeStartedAt,
+                probeStartedAt + 100_000,
+                probeStartedAt + 500_000,
+                probeStartedAt + 600_000,
+                1024);
+
+        BuildTimings.Invocation invocation =
+                BuildTimings.invocation(STARTED_AT, STARTED_AT.plusMillis(3000), true, Optional.of(measurement));
+
+        assertThat(invocation.spec()).isEqualTo("com.example.MySpec");
+        assertThat(invocation.test()).isEqualTo("works: 8.8");
+        assertThat(invocation.gradleVersion()).isEqualTo("8.8");
+        assertThat(invocation.gradleVersionParameter()).isEqualTo("8.8");
+        assertThat(invocation.totalMillis()).isEqualTo(3000);
+        assertThat(invocation.startupMillis()).isEqualTo(500);
+        assertThat(invocation.settingsMillis()).isEqualTo(100);
+        assertThat(invocation.configurationMillis()).isEqualTo(400);
+        assertThat(invocation.taskGraphMillis()).isEqualTo(100);
+        assertThat(invocation.executionMillis()).isEqualTo(1900);
+        assertThat(invocation.daemonPid()).isEqualTo(42);
+        assertThat(invocation.daemonReused()).isTrue();
+    }
+
+    @Test
+    public void buildsWithoutMeasurementsOnlyHaveTotalTime() {
+        BuildTimings.Invocation invocation =
+                BuildTimings.invocation(STARTED_AT, STARTED_AT.plusMillis(250), false, Optional.empty());
+
+        assertThat(invocation.spec()).isEqualTo("unknown");
+        assertThat(invocation.gradleVersionParameter()).isNull();
+        assertThat(invocation.buildSucceeded()).isFalse();
+        assertThat(invocation.totalMillis()).isEqualTo(250);
+        assertThat(invocation.startupMillis()).isNull();
+        assertThat(invocation.daemonReused()).isNull();
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CacheReuseCheckTests {
+
+    @Test
+    public void parsesCacheKeyInputsPerTask() {
+        String output =
+                """
+                > Task :compileJava
+                Appending implementation to build cache key: org.gradle.api.tasks.compile.JavaCompile_Decorated@1234
+                Appending input value fingerprint for 'options.encoding' to build cache key: abc
+                Appending input file fingerprints for 'source' to build cache key: def - RELATIVE_PATH{/tmp/src}
+                Build cache key for task ':compileJava' is 0123
+                Appending input value fingerprint for 'outputDir' to build cache key: 111
+                Build cache key for task ':generate' is 4567
+                """;
+
+        Map<String, Map<String, String>> inputs = CacheReuseCheck.cacheKeyInputs(output);
+
+        assertThat(inputs).containsOnlyKeys(":compileJava", ":generate");
+        assertThat(inputs.get(":compileJava"))
+                .containsEntry("input value fingerprint for 'options.encoding'", "abc")
+                .containsEntry("input file fingerprints for 'source'", "def")
+                .hasSize(3);
+        assertThat(inputs.get(":generate")).containsOnlyKeys("input value fingerprint for 'outputDir'");
+    }
+
+    @Test
+    public void parsesNotUpToDateReasons() {
+        String output =
+                """
+                Task ':generate' is not up-to-date because:
+                  Input property 'timestamp' has changed for task ':generate'
+                  Output property 'outputDir' file /tmp/out has been removed.
+                Custom actions are attached to task ':generate'.
+                Task ':other' is not up-to-date because:
+                  Task has not declared any outputs despite executing actions.
+                """;
+
+        assertThat(CacheReuseCheck.notUpToDateReasons(output))
+                .containsEntry(
+                        ":generate",
+                        List.of(
+                                "Input property 'timestamp' has changed for task ':generate'",
+                                "Output property 'outputDir' file /tmp/out has been removed."))
+                .containsEntry(":other", List.of("Task has not declared any outputs despite executing actions."));
+    }
+}
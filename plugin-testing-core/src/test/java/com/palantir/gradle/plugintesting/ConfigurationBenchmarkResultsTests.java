@@ -0,0 +1,87 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Mode;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Result;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Sample;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ConfigurationBenchmarkResultsTests {
+    private static final ConfigurationBenchmarkResults BASELINE = results(100, 10, 1000);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void resultsUseMedianTimesAndMaxHeap() {
+        Result result = Result.of(
+                "8.8", Mode.WARM, List.of(new Sample(30, 3, 100), new Sample(10, 1, 300), new Sample(20, 2, 200)));
+
+        assertThat(result.configurationMillis()).isEqualTo(20);
+        assertThat(result.taskGraphMillis()).isEqualTo(2);
+        assertThat(result.usedHeapBytes()).isEqualTo(300);
+    }
+
+    @Test
+    public void roundTripsThroughJson() {
+        Path file = tempDir.resolve("results.json");
+        BASELINE.writeJson(file);
+
+        assertThat(ConfigurationBenchmarkResults.readJson(file).getResults()).isEqualTo(BASELINE.getResults());
+    }
+
+    @Test
+    public void writesMissingBaseline() {
+        Path baseline = tempDir.resolve("baseline.json");
+        BASELINE.assertNoRegression(baseline, 0.1);
+
+        assertThat(baseline).exists();
+    }
+
+    @Test
+    public void passesWithinThreshold() {
+        Path baseline = tempDir.resolve("baseline.json");
+        BASELINE.writeJson(baseline);
+
+        results(109, 10, 1000).assertNoRegression(baseline, 0.1);
+        results(50, 5, 500).assertNoRegression(baseline, 0.1);
+    }
+
+    @Test
+    public void failsOnRegression() {
+        Path baseline = tempDir.resolve("baseline.json");
+        BASELINE.writeJson(baseline);
+
+        assertThatThrownBy(() -> results(150, 10, 2000).assertNoRegression(baseline, 0.1))
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("gradle 8.8 (WARM): configuration millis 150.0 is 50% worse than baseline 100.0")
+                .hasMessageContaining("used heap bytes")
+                .hasMessageNotContaining("task graph millis");
+    }
+
+    private static ConfigurationBenchmarkResults results(double configuration, double taskGraph, long heap) {
+        return new ConfigurationBenchmarkResults(
+                List.of(Result.of("8.8", Mode.WARM, List.of(new Sample(configuration, taskGraph, heap)))));
+    }
+}
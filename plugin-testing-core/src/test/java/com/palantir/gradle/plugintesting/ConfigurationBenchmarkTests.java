@@ -0,0 +1,74 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.palantir.gradle.plugintesting.BuildProbe.Measurement;
+import com.palantir.gradle.plugintesting.ConfigurationBenchmarkResults.Sample;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.gradle.testkit.runner.GradleRunner;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ConfigurationBenchmarkTests {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void writesBuildApplyingPluginToEverySubproject() throws IOException {
+        ConfigurationBenchmark.forPlugin("java-library")
+                .withSubprojects(2)
+                .withSubprojectContent("version = '1.0'\n")
+                .writeBuild(tempDir);
+
+        assertThat(Files.readString(tempDir.resolve("settings.gradle")))
+                .contains("include 'project-0'", "include 'project-1'")
+                .doesNotContain("project-2");
+        assertThat(Files.readString(tempDir.resolve("project-1/build.gradle")))
+                .contains("id 'java-library'", "version = '1.0'");
+    }
+
+    @Test
+    public void measuresBuildWithProbe() {
+        Path projectDir = tempDir.resolve("project");
+        File testKitDir = tempDir.resolve("testkit").toFile();
+        ConfigurationBenchmark benchmark = ConfigurationBenchmark.forPlugin("java-library")
+                .withPluginClasspath(List.of())
+                .withSubprojects(3);
+        benchmark.writeBuild(projectDir);
+        BuildProbe probe = BuildProbe.create(projectDir.resolve("build-probe"));
+
+        try {
+            Sample sample = benchmark.measure(GradleRunner.create().withTestKitDir(testKitDir), projectDir, probe);
+
+            Measurement measurement = probe.lastMeasurement().orElseThrow();
+            assertThat(measurement.daemonPid()).isNotEqualTo(ProcessHandle.current().pid());
+            assertThat(sample.configurationMillis()).isEqualTo(measurement.configurationMillis());
+            assertThat(sample.configurationMillis()).isPositive();
+            assertThat(sample.taskGraphMillis()).isNotNegative();
+            assertThat(sample.usedHeapBytes()).isPositive();
+        } finally {
+            TestKitRunners.stopDaemons(testKitDir);
+        }
+    }
+}
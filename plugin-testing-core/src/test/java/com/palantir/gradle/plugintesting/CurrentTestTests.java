@@ -0,0 +1,63 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class CurrentTestTests {
+
+    @Test
+    public void gradleVersionIsTheGradleVersionDataVariable() throws NoSuchMethodException {
+        Method feature = Features.class.getMethod("plain");
+
+        assertThat(CurrentTest.gradleVersion(Features.class, feature, Map.of("gradleVersion", "8.8", "other", "7.6.4")))
+                .hasValue("8.8");
+    }
+
+    @Test
+    public void otherDataValuesAreNotGradleVersions() throws NoSuchMethodException {
+        Method feature = Features.class.getMethod("plain");
+
+        assertThat(CurrentTest.gradleVersion(Features.class, feature, Map.of("version", "8.8"))).isEmpty();
+    }
+
+    @Test
+    public void gradleVersionVariableCanBeRenamed() throws NoSuchMethodException {
+        Method feature = Features.class.getMethod("renamed");
+        Method inherited = RenamedFeatures.class.getMethod("plain");
+        Map<String, Object> dataVariables = Map.of("version", "8.8", "gradleVersion", "7.6.4");
+
+        assertThat(CurrentTest.gradleVersion(Features.class, feature, dataVariables)).hasValue("8.8");
+        assertThat(CurrentTest.gradleVersion(RenamedFeatures.class, inherited, Map.of("target", "8.8")))
+                .hasValue("8.8");
+    }
+
+    public static class Features {
+        public void plain() {}
+
+        @GradleVersionVariable("version")
+        public void renamed() {}
+    }
+
+    @GradleVersionVariable("target")
+    public static final class RenamedFeatures extends Features {}
+}
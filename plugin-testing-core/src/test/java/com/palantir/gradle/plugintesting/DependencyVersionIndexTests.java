@@ -0,0 +1,85 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class DependencyVersionIndexTests {
+    private static final DependencyVersionIndex INDEX = DependencyVersionIndex.parse(List.of(
+            "org.junit.jupiter:junit-jupiter=5.11.3",
+            "com.fasterxml.jackson.core:jackson-databind=2.18.2",
+            "",
+            DependencyVersionIndex.TRANSITIVE_SECTION,
+            "org.junit.jupiter:junit-jupiter-api=5.11.3",
+            "com.fasterxml.jackson.core:jackson-core=2.18.2",
+            "com.fasterxml.jackson.datatype:jackson-datatype-guava=2.17.2",
+            "org.junit.jupiter:junit-jupiter=1.0.0"));
+
+    @Test
+    public void exactLookups() {
+        assertThat(INDEX.version("org.junit.jupiter:junit-jupiter-api")).hasValue("5.11.3");
+        assertThat(INDEX.version("org.junit.jupiter")).isEmpty();
+        assertThat(INDEX.version("not:found")).isEmpty();
+    }
+
+    @Test
+    public void directDependencyWinsOverTransitiveDuplicate() {
+        assertThat(INDEX.version("org.junit.jupiter:junit-jupiter")).hasValue("5.11.3");
+        assertThat(INDEX.isTransitive("org.junit.jupiter:junit-jupiter")).hasValue(false);
+        assertThat(INDEX.isTransitive("org.junit.jupiter:junit-jupiter-api")).hasValue(true);
+    }
+
+    @Test
+    public void overlayWinsOverBase() {
+        DependencyVersionIndex overlay = DependencyVersionIndex.parse(List.of(
+                "org.junit.jupiter:junit-jupiter-api=5.10.0",
+                DependencyVersionIndex.TRANSITIVE_SECTION,
+                "com.google.guava:guava=33.3.1-jre"));
+        DependencyVersionIndex merged = overlay.overlaying(INDEX);
+
+        assertThat(merged.version("org.junit.jupiter:junit-jupiter-api")).hasValue("5.10.0");
+        assertThat(merged.isTransitive("org.junit.jupiter:junit-jupiter-api")).hasValue(false);
+        assertThat(merged.isTransitive("com.google.guava:guava")).hasValue(true);
+        assertThat(merged.version("org.junit.jupiter:junit-jupiter")).hasValue("5.11.3");
+    }
+
+    @Test
+    public void groupWildcard() {
+        assertThat(INDEX.matching("org.junit.jupiter:*"))
+                .containsOnlyKeys("org.junit.jupiter:junit-jupiter", "org.junit.jupiter:junit-jupiter-api");
+    }
+
+    @Test
+    public void groupPrefixWildcard() {
+        assertThat(INDEX.matching("com.fasterxml.jackson.*:*"))
+                .containsOnlyKeys(
+                        "com.fasterxml.jackson.core:jackson-core",
+                        "com.fasterxml.jackson.core:jackson-databind",
+                        "com.fasterxml.jackson.datatype:jackson-datatype-guava");
+        assertThat(INDEX.matching("com.fasterxml.jackson.*:jackson-core"))
+                .containsOnlyKeys("com.fasterxml.jackson.core:jackson-core");
+    }
+
+    @Test
+    public void wildcardWithoutMatches() {
+        assertThat(INDEX.matching("org.junit.platform:*")).isEmpty();
+        assertThat(INDEX.matching("zzz*")).isEmpty();
+    }
+}
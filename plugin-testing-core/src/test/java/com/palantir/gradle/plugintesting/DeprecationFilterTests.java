@@ -0,0 +1,87 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+public class DeprecationFilterTests {
+    private static final String PLUGIN_DEPRECATION =
+            """
+            > Configure project :
+            The Project.getConvention() method has been deprecated. This is scheduled to be removed in Gradle 9.0.
+            \tat org.gradle.api.internal.project.DefaultProject.getConvention(DefaultProject.java:10)
+            \tat com.example.plugin.ExamplePlugin.apply(ExamplePlugin.java:42)
+            \tat org.gradle.api.internal.plugins.ImperativeOnlyPluginTarget.applyImperative(Target.java:20)
+            \t... 120 more
+            """;
+
+    private static final String BUILD_SCRIPT_DEPRECATION =
+            """
+            The Task.project method has been deprecated. This will fail with an error in Gradle 10.0.
+            \tat org.gradle.api.internal.AbstractTask.getProject(AbstractTask.java:10)
+            \tat build_7f3k2.run(build.gradle:3)
+            BUILD SUCCESSFUL in 1s
+            """;
+
+    @Test
+    public void attributesDeprecationsToFirstFrameOutsideGradle() throws IOException {
+        DeprecationFilter filter = DeprecationFilter.forPackages(List.of("com.example.plugin"));
+        filter.write(PLUGIN_DEPRECATION + BUILD_SCRIPT_DEPRECATION);
+
+        assertThat(filter.getDeprecations())
+                .containsExactly(new DeprecationFilter.Deprecation(
+                        "The Project.getConvention() method has been deprecated. This is scheduled to be removed in "
+                                + "Gradle 9.0.",
+                        Optional.of("com.example.plugin.ExamplePlugin.apply(ExamplePlugin.java:42)")));
+    }
+
+    @Test
+    public void handlesOutputSplitAcrossWrites() throws IOException {
+        DeprecationFilter filter = DeprecationFilter.forPackages(List.of("com.example.plugin"));
+        for (char character : PLUGIN_DEPRECATION.toCharArray()) {
+            filter.write(character);
+        }
+
+        assertThat(filter.getDeprecations()).hasSize(1);
+    }
+
+    @Test
+    public void ignoresOtherPackagesAndUnattributedDeprecations() throws IOException {
+        DeprecationFilter filter = DeprecationFilter.forPackages(List.of("com.example.plugin.other"));
+        filter.write(PLUGIN_DEPRECATION);
+        filter.write("This behaviour has been deprecated and is scheduled to be removed in Gradle 9.0\n");
+
+        filter.assertNoDeprecations();
+    }
+
+    @Test
+    public void failsOnEveryDeprecationWithoutPackages() throws IOException {
+        DeprecationFilter filter = DeprecationFilter.forPackages(List.of());
+        filter.write(PLUGIN_DEPRECATION + BUILD_SCRIPT_DEPRECATION);
+
+        assertThatThrownBy(filter::assertNoDeprecations)
+                .isInstanceOf(AssertionError.class)
+                .hasMessageContaining("Project.getConvention()")
+                .hasMessageContaining("at build_7f3k2.run(build.gradle:3)");
+    }
+}
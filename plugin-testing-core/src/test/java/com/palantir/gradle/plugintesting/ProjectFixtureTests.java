@@ -0,0 +1,75 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ProjectFixtureTests {
+
+    @TempDir
+    static Path tempDir;
+
+    @BeforeAll
+    public static void beforeAll() {
+        System.setProperty(TestKitRunners.TEST_KIT_BASE_DIR_SYSTEM_PROPERTY, tempDir.resolve("testkit").toString());
+    }
+
+    @Test
+    public void templateIsBuiltOnceAndClonedIndependently() throws IOException {
+        AtomicInteger builds = new AtomicInteger();
+        ProjectFixture fixture = ProjectFixture.named("simple").withContent(dir -> {
+            builds.incrementAndGet();
+            try {
+                Files.writeString(dir.toPath().resolve("build.gradle"), "apply plugin: 'java'\n");
+                Files.createDirectories(dir.toPath().resolve(".gradle"));
+                Files.writeString(dir.toPath().resolve(".gradle/state"), "warm");
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        Path first = fixture.cloneInto(tempDir.resolve("first").toFile(), "8.8").toPath();
+        Files.writeString(first.resolve("build.gradle"), "// modified\n", StandardOpenOption.APPEND);
+        Path second = fixture.cloneInto(tempDir.resolve("second").toFile(), "8.8").toPath();
+
+        assertThat(builds).hasValue(1);
+        assertThat(second.resolve(".gradle/state")).hasContent("warm");
+        assertThat(second.resolve("build.gradle")).hasContent("apply plugin: 'java'");
+        assertThat(first.resolve("build.gradle")).hasContent("apply plugin: 'java'\n// modified");
+    }
+
+    @Test
+    public void templatesArePerGradleVersion() {
+        AtomicInteger builds = new AtomicInteger();
+        ProjectFixture fixture = ProjectFixture.named("per-version").withContent(_dir -> builds.incrementAndGet());
+
+        fixture.cloneInto(tempDir.resolve("a").toFile(), "7.6.4");
+        fixture.cloneInto(tempDir.resolve("b").toFile(), "8.8");
+        fixture.cloneInto(tempDir.resolve("c").toFile(), "8.8");
+
+        assertThat(builds).hasValue(2);
+    }
+}
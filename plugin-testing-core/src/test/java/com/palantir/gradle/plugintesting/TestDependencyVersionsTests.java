@@ -16,8 +16,8 @@
 
 package com.palantir.gradle.plugintesting;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -31,6 +31,11 @@ public class TestDependencyVersionsTests {
             """
             foo:bar=100
             com.palantir:gradle-plugin-testing=1.2.3
+            org.example:*=4.5.6
+            [transitive]
+            com.palantir:gradle-plugin-testing-core=1.2.3
+            org.junit.jupiter:junit-jupiter-api=5.11.3
+            org.junit.jupiter:junit-jupiter-params=5.11.2
             """;
 
     @TempDir
@@ -62,4 +67,37 @@ public class TestDependencyVersionsTests {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessageContaining("No version found for not:found");
     }
+
+    @Test
+    public void resolveTransitiveDependencies() {
+        assertThat(TestDependencyVersions.resolve("com.palantir:gradle-plugin-testing-core"))
+                .isEqualTo("com.palantir:gradle-plugin-testing-core:1.2.3");
+        assertThat(TestDependencyVersions.isTransitive("com.palantir:gradle-plugin-testing-core"))
+                .isTrue();
+        assertThat(TestDependencyVersions.isTransitive("foo:bar")).isFalse();
+    }
+
+    @Test
+    public void wildcardVersions() {
+        assertThat(TestDependencyVersions.version("com.palantir:*")).isEqualTo("1.2.3");
+        assertThat(TestDependencyVersions.versions("org.junit.*:*"))
+                .containsEntry("org.junit.jupiter:junit-jupiter-api", "5.11.3")
+                .containsEntry("org.junit.jupiter:junit-jupiter-params", "5.11.2")
+                .hasSize(2);
+        assertThatThrownBy(() -> TestDependencyVersions.version("org.junit.jupiter:*"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Multiple versions found for org.junit.jupiter:*");
+    }
+
+    @Test
+    public void fallBackToVersionOfGroup() {
+        assertThat(TestDependencyVersions.resolve("org.example:anything")).isEqualTo("org.example:anything:4.5.6");
+    }
+
+    @Test
+    public void doNotGuessVersionsFromOtherDependenciesOfGroup() {
+        assertThatThrownBy(() -> TestDependencyVersions.resolve("com.palantir:gradle-plugin-testing-bom"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("No version found for com.palantir:gradle-plugin-testing-bom or com.palantir");
+    }
 }
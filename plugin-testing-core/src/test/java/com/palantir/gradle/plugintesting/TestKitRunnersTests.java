@@ -0,0 +1,77 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class TestKitRunnersTests {
+
+    @TempDir
+    static Path tempDir;
+
+    @BeforeAll
+    public static void beforeAll() {
+        System.setProperty(TestKitRunners.TEST_KIT_BASE_DIR_SYSTEM_PROPERTY, tempDir.toString());
+    }
+
+    @Test
+    public void testKitDirIsSharedPerVersionAndFork() {
+        File dir = TestKitRunners.testKitDir("8.8");
+
+        assertThat(TestKitRunners.testKitDir("8.8")).isEqualTo(dir);
+        assertThat(TestKitRunners.testKitDir("7.6.4")).isNotEqualTo(dir);
+        assertThat(dir.toPath().startsWith(tempDir.resolve("8.8"))).isTrue();
+        assertThat(dir.getName()).startsWith("fork-");
+    }
+
+    @Test
+    public void stopDaemonsIgnoresMissingDirectories() {
+        TestKitRunners.stopDaemons(tempDir.resolve("does-not-exist").toFile());
+    }
+
+    @Test
+    public void writesDaemonJvmArgsToTestKitDir() throws IOException {
+        Path testKitDir = tempDir.resolve("jvm-args");
+        System.setProperty(TestKitRunners.TEST_KIT_DAEMON_JVM_ARGS_SYSTEM_PROPERTY, "-Xmx384m");
+        try {
+            TestKitRunners.create("8.8", testKitDir.toFile());
+        } finally {
+            System.clearProperty(TestKitRunners.TEST_KIT_DAEMON_JVM_ARGS_SYSTEM_PROPERTY);
+        }
+
+        assertThat(Files.readString(testKitDir.resolve("gradle.properties")))
+                .isEqualTo("org.gradle.jvmargs=-Xmx384m\n");
+    }
+
+    @Test
+    public void stopIdleDaemonsSkipsSlotsHeldByRunningForks() {
+        File dir = TestKitRunners.testKitDir("8.8");
+
+        TestKitRunners.stopIdleDaemons(tempDir);
+
+        assertThat(TestKitRunners.testKitDir("8.8")).isEqualTo(dir);
+        assertThat(tempDir.resolve("slots").resolve(TestKitRunners.forkSlot() + ".lock")).exists();
+    }
+}
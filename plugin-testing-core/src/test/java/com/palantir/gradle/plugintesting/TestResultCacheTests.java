@@ -0,0 +1,117 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.hash.HashCode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.spockframework.runtime.model.FeatureInfo;
+import org.spockframework.runtime.model.SpecInfo;
+
+public class TestResultCacheTests {
+
+    @TempDir
+    Path tempDir;
+
+    private Path pluginJar;
+    private Path testClasses;
+    private Path dependencyVersions;
+    private Path dependencyVersionsOverlay;
+
+    @BeforeEach
+    public void beforeEach() throws IOException {
+        pluginJar = Files.writeString(tempDir.resolve("plugin.jar"), "plugin");
+        testClasses = Files.createDirectories(tempDir.resolve("classes"));
+        Files.writeString(testClasses.resolve("Fixtures.class"), "fixtures");
+        dependencyVersions = Files.writeString(tempDir.resolve("dependency-versions.properties"), "foo:bar=1.0");
+        dependencyVersionsOverlay = Files.writeString(tempDir.resolve("overlay.properties"), "foo:baz=1.0");
+    }
+
+    @Test
+    public void recordsPassedTests() {
+        TestResultCache cache = cache();
+        HashCode key = cache.key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        assertThat(cache.hasPassed(key)).isFalse();
+        cache.recordPassed(key);
+        assertThat(cache.hasPassed(key)).isTrue();
+        assertThat(cache().hasPassed(key)).isTrue();
+    }
+
+    @Test
+    public void keyDependsOnTestAndGradleVersion() {
+        TestResultCache cache = cache();
+        HashCode key = cache.key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        assertThat(cache.key(TestResultCacheTests.class, "test: 8.8", "8.8")).isEqualTo(key);
+        assertThat(cache.key(TestResultCacheTests.class, "test: 8.8", "7.6.4")).isNotEqualTo(key);
+        assertThat(cache.key(TestResultCacheTests.class, "other test: 8.8", "8.8")).isNotEqualTo(key);
+        assertThat(cache.key(TestKitRunnersTests.class, "test: 8.8", "8.8")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void keyDependsOnPluginAndDependencyVersions() throws IOException {
+        HashCode key = cache().key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        Files.writeString(pluginJar, "changed plugin");
+        HashCode pluginChanged = cache().key(TestResultCacheTests.class, "test: 8.8", "8.8");
+        Files.writeString(dependencyVersions, "foo:bar=2.0");
+        HashCode versionsChanged = cache().key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        Files.writeString(dependencyVersionsOverlay, "foo:baz=2.0");
+        HashCode overlayChanged = cache().key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        assertThat(pluginChanged).isNotEqualTo(key);
+        assertThat(versionsChanged).isNotEqualTo(key).isNotEqualTo(pluginChanged);
+        assertThat(overlayChanged).isNotEqualTo(versionsChanged);
+    }
+
+    @Test
+    public void keyDependsOnTestClasspath() throws IOException {
+        HashCode key = cache().key(TestResultCacheTests.class, "test: 8.8", "8.8");
+
+        Files.writeString(testClasses.resolve("Fixtures.class"), "changed fixtures");
+
+        assertThat(cache().key(TestResultCacheTests.class, "test: 8.8", "8.8")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void extensionLeavesSpecsAloneWhenCacheIsDisabled() {
+        SpecInfo spec = new SpecInfo();
+        FeatureInfo feature = new FeatureInfo();
+        spec.addFeature(feature);
+
+        new TestResultCacheExtension().visitSpec(spec);
+
+        assertThat(feature.getIterationInterceptors()).isEmpty();
+    }
+
+    private TestResultCache cache() {
+        return TestResultCache.create(
+                tempDir.resolve("cache"),
+                List.of(pluginJar),
+                List.of(pluginJar, testClasses),
+                List.of(dependencyVersions, dependencyVersionsOverlay));
+    }
+}
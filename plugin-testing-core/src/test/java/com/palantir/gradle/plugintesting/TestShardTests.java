@@ -0,0 +1,89 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class TestShardTests {
+    private static final List<String> VERSIONS = List.of("7.6.4", "8.8");
+
+    @Test
+    public void balancesSpecsByDuration() {
+        Map<String, Map<String, Double>> timings = Map.of(
+                "A", Map.of(TestShard.WHOLE_SPEC, 1000.0),
+                "B", Map.of(TestShard.WHOLE_SPEC, 600.0),
+                "C", Map.of(TestShard.WHOLE_SPEC, 500.0),
+                "D", Map.of(TestShard.WHOLE_SPEC, 100.0));
+
+        TestShard first = TestShard.assign(timings.keySet(), VERSIONS, timings, 0, 2);
+        TestShard second = TestShard.assign(timings.keySet(), VERSIONS, timings, 1, 2);
+
+        assertThat(first.specs()).containsExactly("A", "D");
+        assertThat(first.otherSpecs()).containsExactly("B", "C");
+        assertThat(first.estimatedMillis()).isEqualTo(1100);
+        assertThat(second.specs()).containsExactly("B", "C");
+        assertThat(second.estimatedMillis()).isEqualTo(1100);
+    }
+
+    @Test
+    public void splitsSpecsWithGradleVersionParametersByVersion() {
+        Map<String, Map<String, Double>> timings = Map.of(
+                "Slow", Map.of("7.6.4", 3000.0, "8.8", 1000.0),
+                "Fast", Map.of(TestShard.WHOLE_SPEC, 1500.0));
+
+        TestShard shard = TestShard.assign(timings.keySet(), VERSIONS, timings, 1, 2);
+
+        assertThat(shard.specs()).containsExactly("Fast");
+        assertThat(shard.gradleVersions()).isEqualTo(Map.of("Slow", Set.of("8.8")));
+        assertThat(shard.otherSpecs()).isEmpty();
+        assertThat(shard.runs("Slow", VERSIONS)).isTrue();
+        // e.g. the testGradle7_6_4 task when sharding tests by gradle version
+        assertThat(shard.runs("Slow", List.of("7.6.4"))).isFalse();
+    }
+
+    @Test
+    public void splitsSpecsAndVersionsWithoutTimingsEvenly() {
+        Map<String, Map<String, Double>> timings = Map.of("Versioned", Map.of("7.6.4", 1000.0));
+        Set<String> specs = Set.of("New1", "New2", "New3", "New4", "Versioned");
+
+        TestShard first = TestShard.assign(specs, VERSIONS, timings, 0, 2);
+        TestShard second = TestShard.assign(specs, VERSIONS, timings, 1, 2);
+
+        assertThat(first.specs()).containsExactly("New2", "New4");
+        assertThat(first.gradleVersions()).isEqualTo(Map.of("Versioned", Set.of("7.6.4")));
+        assertThat(second.specs()).containsExactly("New1", "New3");
+        assertThat(second.gradleVersions()).isEqualTo(Map.of("Versioned", Set.of("8.8")));
+    }
+
+    @Test
+    public void callingSpecOnlyGetsItsAssignedVersions() {
+        TestShard shard = new TestShard(
+                0, 2, 0, Set.of(), Map.of(TestShardTests.class.getName(), Set.of("8.8")), Set.of("Other"));
+
+        assertThat(shard.gradleVersionsForCaller(VERSIONS)).containsExactly("8.8");
+        Runnable nested = () -> assertThat(shard.gradleVersionsForCaller(VERSIONS)).containsExactly("8.8");
+        nested.run();
+
+        TestShard unsplit = new TestShard(0, 2, 0, Set.of(TestShardTests.class.getName()), Map.of(), Set.of());
+        assertThat(unsplit.gradleVersionsForCaller(VERSIONS)).containsExactlyElementsOf(VERSIONS);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * (c) Copyright 2024 Palantir Technologies Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.palantir.gradle.plugintesting;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+public class VersionOverridesTests {
+    @RegisterExtension
+    static final VersionOverridesExtension versions = VersionOverridesExtension.forOverrides(
+            VersionOverrides.create().withDependencyVersions(Map.of("foo:bar", "1")));
+
+    @Test
+    public void extensionAppliesOverridesToTest() {
+        assertThat(TestDependencyVersions.resolve("foo:bar")).isEqualTo("foo:bar:1");
+    }
+
+    @Test
+    public void nestedScopesRestoreOuterOverrides() {
+        try (VersionOverrides.Scope _scope = VersionOverrides.create()
+                .withDependencyVersions(Map.of("foo:bar", "2"))
+                .withGradleVersions(List.of("8.8"))
+                .apply()) {
+            assertThat(TestDependencyVersions.resolve("foo:bar")).isEqualTo("foo:bar:2");
+            assertThat(GradleTestVersions.getGradleVersionsForTests()).containsExactly("8.8");
+
+            try (VersionOverrides.Scope _inner =
+                    VersionOverrides.create().withGradleVersions(List.of("7.6.4")).apply()) {
+                // dependency versions are inherited from the enclosing scope
+                assertThat(TestDependencyVersions.resolve("foo:bar")).isEqualTo("foo:bar:2");
+                assertThat(GradleTestVersions.getAllGradleVersionsForTests()).containsExactly("7.6.4");
+            }
+
+            assertThat(GradleTestVersions.getGradleVersionsForTests()).containsExactly("8.8");
+        }
+        assertThat(TestDependencyVersions.resolve("foo:bar")).isEqualTo("foo:bar:1");
+    }
+
+    @Test
+    public void concurrentScopesAreIsolated() throws Exception {
+        CountDownLatch applied = new CountDownLatch(2);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(() -> resolveWhileOtherScopeIsOpen("3", applied));
+            Future<String> second = executor.submit(() -> resolveWhileOtherScopeIsOpen("4", applied));
+            assertThat(first.get()).isEqualTo("foo:bar:3");
+            assertThat(second.get()).isEqualTo("foo:bar:4");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void pooledThreadsDoNotKeepOverridesOfScopeTheyWereStartedIn() throws Exception {
+        List<String> defaultVersions = GradleTestVersions.getAllGradleVersionsForTests();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            try (VersionOverrides.Scope _scope =
+                    VersionOverrides.create().withGradleVersions(List.of("6.9.4")).apply()) {
+                // starts the only thread of the pool while the scope is open
+                assertThat(executor.submit(GradleTestVersions::getAllGradleVersionsForTests)
+                                .get())
+                        .isEqualTo(defaultVersions);
+            }
+
+            assertThat(executor.submit(GradleTestVersions::getAllGradleVersionsForTests)
+                            .get())
+                    .isEqualTo(defaultVersions);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void overridesArePassedToOtherThreadsExplicitly() throws Exception {
+        VersionOverrides overrides = VersionOverrides.create().withDependencyVersions(Map.of("foo:bar", "5"));
+        String resolved = overrides.call(() -> {
+            VersionOverrides captured = VersionOverrides.current();
+            return CompletableFuture.supplyAsync(
+                            () -> TestDependencyVersions.resolve("foo:bar"),
+                            runnable -> ForkJoinPool.commonPool().execute(captured.wrap(runnable)))
+                    .get();
+        });
+        assertThat(resolved).isEqualTo("foo:bar:5");
+    }
+
+    private static String resolveWhileOtherScopeIsOpen(String version, CountDownLatch applied) throws Exception {
+        return VersionOverrides.create()
+                .withDependencyVersions(Map.of("foo:bar", version))
+                .call(() -> {
+                    applied.countDown();
+                    applied.await();
+                    return TestDependencyVersions.resolve("foo:bar");
+                });
+    }
+}